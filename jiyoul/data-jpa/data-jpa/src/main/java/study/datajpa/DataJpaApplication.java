@@ -5,11 +5,16 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import study.datajpa.repository.MultiLoadJpaRepository;
 
 import java.util.Optional;
 import java.util.UUID;
 
 @EnableJpaAuditing
+@EnableJpaRepositories(repositoryBaseClass = MultiLoadJpaRepository.class)
+@EnableScheduling
 @SpringBootApplication
 public class DataJpaApplication {
 
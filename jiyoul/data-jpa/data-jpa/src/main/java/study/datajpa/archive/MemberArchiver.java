@@ -0,0 +1,105 @@
+package study.datajpa.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.OutboxEvent;
+import study.datajpa.outbox.OutboxRecorder;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * createdDate 가 retention-days 보다 오래된 회원을 member_archive 로 옮긴다.
+ * 청크마다 별도 트랜잭션(REQUIRES_NEW)으로 처리해 잠금과 undo 크기를 청크 단위로 제한하고,
+ * 중간에 실패해도 이미 커밋된 청크는 유지된다.
+ * JDBC 로 옮기므로 엔티티 이벤트가 없다. team.member_count 와 member_view 는 직접 맞추고, 회원별 DELETE outbox 이벤트를 남긴다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.archive.enabled", havingValue = "true")
+public class MemberArchiver {
+
+    private static final String SELECT_CHUNK = "select member_id from member where created_date < :cutoff " +
+            "order by member_id limit :limit for update";
+    private static final String COPY_TO_ARCHIVE = "insert into member_archive " +
+            "(member_id, username, age, team_id, created_date, last_modified_date, created_by, last_modified_by, archived_date) " +
+            "select member_id, username, age, team_id, created_date, last_modified_date, created_by, last_modified_by, :now " +
+            "from member where member_id in (:ids)";
+    private static final String DECREMENT_TEAM_COUNT = "update team t set member_count = member_count - " +
+            "(select count(*) from member m where m.team_id = t.team_id and m.member_id in (:ids)) " +
+            "where t.team_id in (select team_id from member where member_id in (:ids))";
+    private static final String DELETE_VIEW = "delete from member_view where member_id in (:ids)";
+    private static final String DELETE_MEMBER = "delete from member where member_id in (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final OutboxRecorder outboxRecorder;
+    private final TransactionTemplate chunkTransaction;
+    private final long retentionDays;
+    private final int chunkSize;
+
+    public MemberArchiver(NamedParameterJdbcTemplate jdbcTemplate,
+                          OutboxRecorder outboxRecorder,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${app.archive.retention-days:365}") long retentionDays,
+                          @Value("${app.archive.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.outboxRecorder = outboxRecorder;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.retentionDays = retentionDays;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${app.archive.cron:0 0 3 * * *}")
+    public void archive() {
+        int archived = archiveOlderThan(LocalDateTime.now().minusDays(retentionDays));
+        if (archived > 0) {
+            log.info("archived {} members older than {} days", archived, retentionDays);
+        }
+    }
+
+    /**
+     * cutoff 이전에 생성된 회원을 모두 옮기고 옮긴 건수를 반환한다.
+     */
+    public int archiveOlderThan(LocalDateTime cutoff) {
+        int total = 0;
+        int moved;
+        do {
+            moved = chunkTransaction.execute(status -> archiveChunk(cutoff));
+            total += moved;
+        } while (moved == chunkSize);
+        return total;
+    }
+
+    private int archiveChunk(LocalDateTime cutoff) {
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_CHUNK, new MapSqlParameterSource()
+                .addValue("cutoff", Timestamp.valueOf(cutoff))
+                .addValue("limit", chunkSize), Long.class);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("now", Timestamp.valueOf(LocalDateTime.now()));
+        jdbcTemplate.update(COPY_TO_ARCHIVE, params);
+        jdbcTemplate.update(DECREMENT_TEAM_COUNT, params);
+        jdbcTemplate.update(DELETE_VIEW, params);
+        jdbcTemplate.update(DELETE_MEMBER, params);
+
+        Map<String, Object> payload = Map.of("archived", true);
+        ids.forEach(id -> outboxRecorder.record(Member.class, id, OutboxEvent.DELETE, payload));
+        return ids.size();
+    }
+}
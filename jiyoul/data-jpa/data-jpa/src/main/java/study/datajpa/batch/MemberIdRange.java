@@ -0,0 +1,19 @@
+package study.datajpa.batch;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * member_id 구간 [from, to). 파티션 작업은 where m.id >= :from and m.id < :to 로 자기 구간만 다룬다.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@RequiredArgsConstructor
+public class MemberIdRange {
+
+    private final long from;
+    private final long to;
+}
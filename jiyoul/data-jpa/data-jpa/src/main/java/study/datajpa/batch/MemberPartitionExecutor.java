@@ -0,0 +1,181 @@
+package study.datajpa.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.outbox.OutboxRecorder;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * member_id 키 공간을 구간으로 나눠 워커 스레드들에서 병렬로 처리하고 결과를 합친다.
+ * 구간마다 새 트랜잭션을 열므로 각 구간은 자기 EntityManager(영속성 컨텍스트)와 커넥션을 가진다.
+ * id 가 고르게 분포하지 않을 수 있어 워커 수의 4배로 잘게 나눠 먼저 끝난 워커가 남은 구간을 가져가게 한다.
+ * <p>
+ * update 는 구간별로 커밋되므로 일부 구간이 실패해도 나머지 구간의 변경은 유지된다. 예외를 던지지 않고 구간별 결과와 실패를 돌려준다.
+ * task 가 리포지토리를 거치지 않은 JPQL/SQL 로 쓰므로, 모든 구간이 끝난 뒤 행을 바꾼 구간들을 덮는 Member 범위 이벤트를 하나 남긴다.
+ * 구간마다 남기면 작업 하나에 읽기 모델, 캐시, 색인이 구간 수만큼 다시 맞춰진다.
+ * 이벤트는 구간 커밋과 다른 트랜잭션이므로 그 사이에 프로세스가 죽으면 빠진다. 이때는 MemberViewProjector.rebuild() 로 맞춘다.
+ * 커넥션 풀 크기보다 parallelism 을 크게 잡으면 워커가 커넥션을 기다리기만 한다.
+ */
+@Slf4j
+@Component
+public class MemberPartitionExecutor implements DisposableBean {
+
+    private static final int SPLITS_PER_WORKER = 4;
+
+    private final EntityManager em;
+    private final OutboxRecorder outboxRecorder;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final int parallelism;
+    private final ExecutorService workers;
+
+    public MemberPartitionExecutor(EntityManager em,
+                                   OutboxRecorder outboxRecorder,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.partition.parallelism:0}") int parallelism) {
+        this.em = em;
+        this.outboxRecorder = outboxRecorder;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // 0 이면 코어 수만큼 띄운다.
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+
+        AtomicInteger sequence = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.parallelism, r -> {
+            Thread thread = new Thread(r, "member-partition-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * 구간별 읽기 전용 트랜잭션에서 task 를 실행하고 결과를 merger 로 합친다. 회원이 없으면 identity 를 반환한다.
+     */
+    public <R> R aggregate(BiFunction<EntityManager, MemberIdRange, R> task, R identity, BinaryOperator<R> merger) {
+        return execute(readTransaction, task, identity, merger);
+    }
+
+    /**
+     * 구간별 쓰기 트랜잭션에서 task 를 실행하고, task 가 반환한 구간별 변경 행 수와 실패한 구간을 반환한다.
+     */
+    public PartitionUpdateResult update(BiFunction<EntityManager, MemberIdRange, Integer> task) {
+        List<MemberIdRange> ranges = split();
+        List<CompletableFuture<Integer>> futures = submit(writeTransaction, task, ranges);
+
+        Map<MemberIdRange, Integer> updatedRows = new LinkedHashMap<>();
+        Map<MemberIdRange, RuntimeException> failures = new LinkedHashMap<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            try {
+                updatedRows.put(ranges.get(i), futures.get(i).join());
+            } catch (CompletionException e) {
+                failures.put(ranges.get(i), e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e);
+            }
+        }
+
+        PartitionUpdateResult result = new PartitionUpdateResult(updatedRows, failures);
+        recordRange(result);
+        if (result.hasFailures()) {
+            log.warn("partitioned update failed in {} of {} partitions: {}", failures.size(), ranges.size(), failures.keySet());
+        }
+        return result;
+    }
+
+    /**
+     * 현재 min/max member_id 를 parallelism * 4 개 구간으로 나눈다.
+     */
+    public List<MemberIdRange> split() {
+        Object[] bounds = readTransaction.execute(status -> em.createQuery(
+                "select min(m.id), max(m.id) from Member m", Object[].class).getSingleResult());
+        if (bounds == null || bounds[0] == null) {
+            return List.of();
+        }
+
+        long min = (Long) bounds[0];
+        long max = (Long) bounds[1] + 1;
+        int partitions = (int) Math.min(parallelism * SPLITS_PER_WORKER, max - min);
+        long step = (max - min + partitions - 1) / partitions;
+
+        List<MemberIdRange> ranges = new ArrayList<>(partitions);
+        for (long from = min; from < max; from += step) {
+            ranges.add(new MemberIdRange(from, Math.min(from + step, max)));
+        }
+        return ranges;
+    }
+
+    private <R> R execute(TransactionTemplate transactionTemplate, BiFunction<EntityManager, MemberIdRange, R> task,
+                          R identity, BinaryOperator<R> merger) {
+        List<CompletableFuture<R>> futures = submit(transactionTemplate, task, split());
+
+        // 실패한 구간이 있어도 나머지 구간이 끝날 때까지 기다린 뒤 예외를 던진다.
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+
+        R result = identity;
+        for (CompletableFuture<R> future : futures) {
+            result = merger.apply(result, future.join());
+        }
+        return result;
+    }
+
+    private <R> List<CompletableFuture<R>> submit(TransactionTemplate transactionTemplate,
+                                                  BiFunction<EntityManager, MemberIdRange, R> task, List<MemberIdRange> ranges) {
+        List<CompletableFuture<R>> futures = new ArrayList<>();
+        for (MemberIdRange range : ranges) {
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> transactionTemplate.execute(status -> task.apply(em, range)), workers));
+        }
+        return futures;
+    }
+
+    // 행을 바꾼 구간들을 덮는 [from, to) 하나로 남긴다. 사이에 낀 구간도 다시 맞춰지지만 결과는 같다.
+    private void recordRange(PartitionUpdateResult result) {
+        List<MemberIdRange> changed = result.getUpdatedRows().entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        if (changed.isEmpty()) {
+            return;
+        }
+        long from = changed.get(0).getFrom();
+        long to = changed.get(changed.size() - 1).getTo();
+        writeTransaction.executeWithoutResult(status -> outboxRecorder.recordRange(Member.class,
+                Map.of("partitionFrom", from, "partitionTo", to, "rows", result.totalRows())));
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdownNow();
+    }
+}
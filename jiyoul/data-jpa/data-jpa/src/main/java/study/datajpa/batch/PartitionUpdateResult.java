@@ -0,0 +1,28 @@
+package study.datajpa.batch;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * MemberPartitionExecutor.update 의 구간별 결과. 구간마다 따로 커밋되므로 일부 구간만 실패할 수 있다.
+ * updatedRows 는 커밋된 구간별 변경 행 수, failures 는 롤백된 구간별 예외이고 둘 다 구간 순서다.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class PartitionUpdateResult {
+
+    private final Map<MemberIdRange, Integer> updatedRows;
+    private final Map<MemberIdRange, RuntimeException> failures;
+
+    public int totalRows() {
+        return updatedRows.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+}
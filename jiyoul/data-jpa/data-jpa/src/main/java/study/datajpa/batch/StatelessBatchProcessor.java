@@ -0,0 +1,187 @@
+package study.datajpa.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.query.Query;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.auditing.AuditingHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.outbox.OutboxRecorder;
+import study.datajpa.readmodel.MemberViewProjector;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Member/Team/Item 전체를 훑는 배치 작업용 API. findAll() 처럼 1차 캐시에 전부 올리지 않는다.
+ * 읽기는 별도 커넥션의 StatelessSession 에서 forward-only 커서로 fetch-size 만큼씩 가져오고,
+ * 쓰기는 chunk-size 행마다 새 트랜잭션(REQUIRES_NEW)의 StatelessSession 으로 배치 실행 후 커밋한다.
+ * 실패하면 해당 청크만 롤백되고 예외가 전파되며, 이미 커밋된 청크는 유지된다.
+ * <p>
+ * 엔티티 이벤트가 없으므로 청크 트랜잭션 안에서 쓴 엔티티마다 outbox 이벤트를 남기고(쓰기 지연, 보관 처리와 같은 방식)
+ * 쓴 회원/팀의 member_view 행만 다시 맞춘다. 범위 이벤트를 남기면 청크마다 member_view, 색인, 캐시를 통째로 다시 만들게 된다.
+ * Member 를 썼다면 같은 청크 트랜잭션에서 그 회원들의 옛 팀(청크로 읽은 회원의 팀)과 새 팀의 team.member_count 만 다시 센다.
+ * 청크로 읽지 않은 회원을 다른 팀으로 옮기거나 지우면 옛 팀은 다시 세지 않으므로 TeamRepository.recountMembers() 로 맞춘다.
+ * 읽은 엔티티의 지연 연관은 초기화할 수 없으니 필요하면 쿼리에서 fetch join 한다.
+ */
+@Slf4j
+@Component
+public class StatelessBatchProcessor {
+
+    private static final String SELECT_TEAM_IDS = "select distinct team_id from member where member_id in (:ids) and team_id is not null";
+    private static final String RECOUNT_TEAMS = "update team t set member_count = " +
+            "(select count(*) from member m where m.team_id = t.team_id) where t.team_id in (:teamIds)";
+
+    private final SessionFactoryImplementor sessionFactory;
+    private final DataSource dataSource;
+    private final AuditingHandler auditingHandler;
+    private final OutboxRecorder outboxRecorder;
+    private final ObjectProvider<MemberViewProjector> memberViewProjector;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+    private final int fetchSize;
+
+    public StatelessBatchProcessor(EntityManagerFactory emf,
+                                   DataSource dataSource,
+                                   AuditingHandler auditingHandler,
+                                   OutboxRecorder outboxRecorder,
+                                   ObjectProvider<MemberViewProjector> memberViewProjector,
+                                   NamedParameterJdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.batch.chunk-size:500}") int chunkSize,
+                                   @Value("${app.batch.fetch-size:500}") int fetchSize) {
+        this.sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+        this.dataSource = dataSource;
+        this.auditingHandler = auditingHandler;
+        this.outboxRecorder = outboxRecorder;
+        this.memberViewProjector = memberViewProjector;
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkSize = chunkSize;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * entityType 의 모든 행을 id 순서로 processor 에 넘기고 처리한 행 수를 반환한다.
+     */
+    public <T> long process(Class<T> entityType, BiConsumer<T, StatelessWriter> processor) {
+        String idName = sessionFactory.getMetamodel().entityPersister(entityType).getIdentifierPropertyName();
+        String query = "select e from " + sessionFactory.getMetamodel().entity(entityType).getName() + " e order by e." + idName;
+        return process(query, Collections.emptyMap(), entityType, chunkSize, processor);
+    }
+
+    /**
+     * HQL 결과를 chunkSize 행씩 processor 에 넘기고 청크마다 커밋한다. 처리한 행 수를 반환한다.
+     */
+    public <T> long process(String query, Map<String, ?> parameters, Class<T> resultType, int chunkSize,
+                            BiConsumer<T, StatelessWriter> processor) {
+        long rows = 0;
+
+        try (StatelessSession reader = sessionFactory.openStatelessSession()) {
+            // 커서는 트랜잭션 안에서만 유지되는 DB 가 있으므로 읽기 트랜잭션을 끝까지 열어둔다.
+            Transaction readTransaction = reader.beginTransaction();
+            try {
+                Query<T> scrollQuery = reader.createQuery(query, resultType)
+                        .setFetchSize(fetchSize)
+                        .setReadOnly(true);
+                parameters.forEach(scrollQuery::setParameter);
+
+                try (ScrollableResults results = scrollQuery.scroll(ScrollMode.FORWARD_ONLY)) {
+                    List<T> chunk = new ArrayList<>(chunkSize);
+                    while (results.next()) {
+                        chunk.add(resultType.cast(results.get(0)));
+                        if (chunk.size() == chunkSize) {
+                            rows += writeChunk(chunk, processor);
+                            chunk.clear();
+                        }
+                    }
+                    if (!chunk.isEmpty()) {
+                        rows += writeChunk(chunk, processor);
+                    }
+                }
+            } finally {
+                readTransaction.rollback();
+            }
+        }
+
+        log.info("stateless batch processed {} rows of {}", rows, resultType.getSimpleName());
+        return rows;
+    }
+
+    private <T> int writeChunk(List<T> chunk, BiConsumer<T, StatelessWriter> processor) {
+        chunkTransaction.executeWithoutResult(status -> {
+            Set<Long> teamIds = teamIdsOf(chunk.stream()
+                    .filter(Member.class::isInstance)
+                    .map(member -> ((Member) member).getId())
+                    .collect(Collectors.toList()));
+
+            // JpaTransactionManager 가 노출한 트랜잭션 커넥션을 그대로 쓰므로 outbox 기록과 함께 커밋/롤백된다.
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            StatelessSession session = sessionFactory.openStatelessSession(connection);
+            try {
+                StatelessWriter writer = new StatelessWriter(session, auditingHandler);
+                chunk.forEach(entity -> processor.accept(entity, writer));
+                // 외부 커넥션으로 연 세션은 스스로 커밋하지 않으므로 남은 JDBC 배치를 직접 실행한다.
+                ((SharedSessionContractImplementor) session).getJdbcCoordinator().executeBatch();
+
+                for (StatelessWriter.Written write : writer.written()) {
+                    if (OutboxRecorder.isAggregate(write.type())) {
+                        outboxRecorder.record((SharedSessionContractImplementor) session, write.entity, write.eventType);
+                    }
+                }
+                if (writer.writtenTypes().contains(Member.class)) {
+                    teamIds.addAll(teamIdsOf(writer.writtenIds(Member.class, Long.class)));
+                    recountTeams(teamIds);
+                }
+                memberViewProjector.ifAvailable(projector -> {
+                    projector.refreshMembers(writer.writtenIds(Member.class, Long.class));
+                    projector.refreshTeams(writer.writtenIds(Team.class, Long.class));
+                });
+            } finally {
+                session.close();
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        });
+        return chunk.size();
+    }
+
+    private Set<Long> teamIdsOf(Collection<Long> memberIds) {
+        if (memberIds.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+        return new LinkedHashSet<>(jdbcTemplate.queryForList(SELECT_TEAM_IDS, new MapSqlParameterSource("ids", memberIds), Long.class));
+    }
+
+    // 범위 이벤트 없이 JDBC 로만 맞춘다. member_count 는 member_view 나 캐시에 들어가지 않는다(TeamMemberCountUpdater 와 같다).
+    private void recountTeams(Set<Long> teamIds) {
+        if (!teamIds.isEmpty()) {
+            jdbcTemplate.update(RECOUNT_TEAMS, new MapSqlParameterSource("teamIds", teamIds));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package study.datajpa.batch;
+
+import org.hibernate.Hibernate;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.data.auditing.AuditingHandler;
+import study.datajpa.entity.OutboxEvent;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 청크 하나의 쓰기 창구. StatelessSession 위에서 바로 SQL 을 만들므로 변경 감지, cascade, 엔티티 콜백, Hibernate 이벤트가 없다.
+ * insert/update 는 hibernate.jdbc.batch_size 단위로 JDBC 배치에 쌓였다가 청크 커밋 직전에 실행된다.
+ * 감사 필드는 콜백 대신 여기서 AuditingHandler 로 채우고, 쓴 엔티티와 식별자는 청크 끝에 outbox 이벤트로 남기도록 모아둔다.
+ */
+public class StatelessWriter {
+
+    private final StatelessSession session;
+    private final AuditingHandler auditingHandler;
+    private final List<Written> written = new ArrayList<>();
+
+    StatelessWriter(StatelessSession session, AuditingHandler auditingHandler) {
+        this.session = session;
+        this.auditingHandler = auditingHandler;
+    }
+
+    public void insert(Object entity) {
+        Serializable id = session.insert(auditingHandler.markCreated(entity));
+        written.add(new Written(entity, id, OutboxEvent.INSERT));
+    }
+
+    public void update(Object entity) {
+        session.update(auditingHandler.markModified(entity));
+        written.add(new Written(entity, identifier(entity), OutboxEvent.UPDATE));
+    }
+
+    public void delete(Object entity) {
+        session.delete(entity);
+        written.add(new Written(entity, identifier(entity), OutboxEvent.DELETE));
+    }
+
+    List<Written> written() {
+        return Collections.unmodifiableList(written);
+    }
+
+    Set<Class<?>> writtenTypes() {
+        return written.stream().map(Written::type).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    // 같은 엔티티를 여러 번 썼어도 식별자는 한 번만
+    <ID> Set<ID> writtenIds(Class<?> type, Class<ID> idType) {
+        return written.stream()
+                .filter(write -> write.type() == type)
+                .map(write -> idType.cast(write.id))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private Serializable identifier(Object entity) {
+        SharedSessionContractImplementor implementor = (SharedSessionContractImplementor) session;
+        return implementor.getEntityPersister(null, entity).getIdentifier(entity, implementor);
+    }
+
+    static class Written {
+        final Object entity;
+        final Serializable id;
+        final String eventType;
+
+        Written(Object entity, Serializable id, String eventType) {
+            this.entity = entity;
+            this.id = id;
+            this.eventType = eventType;
+        }
+
+        Class<?> type() {
+            return Hibernate.getClass(entity);
+        }
+    }
+}
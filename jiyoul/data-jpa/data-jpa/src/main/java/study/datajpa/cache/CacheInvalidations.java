@@ -0,0 +1,173 @@
+package study.datajpa.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 이 노드의 Member/Team/Item 변경을 모든 노드의 캐시에 알린다.
+ * OutboxRecorder 가 기록하는 모든 변경을 트랜잭션별로 모았다가 커밋 후 노드 전체 묶음에 합치고,
+ * flush-interval-ms 마다 묶음 하나로 InvalidationBus 에 보낸다. 롤백된 변경은 보내지 않는다.
+ * 한 타입의 식별자가 max-ids-per-type 을 넘으면 그 타입 전체(region) 무효화로 바꾼다.
+ * <p>
+ * 받은 묶음은 InvalidationListener 들에게 전달한다. 자기 노드가 보낸 묶음은 receivesOwnChanges() 인 리스너에게만 전달한다.
+ */
+@Slf4j
+@Component
+public class CacheInvalidations {
+
+    private final InvalidationBus bus;
+    private final ObjectProvider<InvalidationListener> listeners;
+    private final String nodeId;
+    private final int maxIdsPerType;
+    private Changes pending = new Changes(); // this 로 보호
+
+    public CacheInvalidations(InvalidationBus bus,
+                              ObjectProvider<InvalidationListener> listeners,
+                              @Value("${app.invalidation.node-id:}") String nodeId,
+                              @Value("${app.invalidation.max-ids-per-type:500}") int maxIdsPerType) {
+        this.bus = bus;
+        this.listeners = listeners;
+        this.nodeId = nodeId.isEmpty() ? UUID.randomUUID().toString() : nodeId;
+        this.maxIdsPerType = maxIdsPerType;
+        bus.subscribe(this::receive);
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public void entityChanged(String aggregateType, Object id) {
+        Changes changes = transactionChanges();
+        if (changes != null) {
+            changes.addEntity(aggregateType, String.valueOf(id));
+            return;
+        }
+        synchronized (this) {
+            pending.addEntity(aggregateType, String.valueOf(id));
+        }
+    }
+
+    public void regionChanged(String aggregateType) {
+        Changes changes = transactionChanges();
+        if (changes != null) {
+            changes.addRegion(aggregateType);
+            return;
+        }
+        synchronized (this) {
+            pending.addRegion(aggregateType);
+        }
+    }
+
+    /**
+     * 모인 변경을 묶음 하나로 보낸다. 보내지 못하면 다음 주기에 다시 보낸다.
+     */
+    @Scheduled(fixedDelayString = "${app.invalidation.flush-interval-ms:100}")
+    public void flush() {
+        Changes changes;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            changes = pending;
+            pending = new Changes();
+        }
+
+        try {
+            bus.publish(changes.toInvalidation(nodeId));
+        } catch (RuntimeException e) {
+            log.warn("cache invalidation publish failed, will retry", e);
+            merge(changes);
+        }
+    }
+
+    void receive(Invalidation invalidation) {
+        if (invalidation.isEmpty()) {
+            return;
+        }
+        boolean own = nodeId.equals(invalidation.getOrigin());
+        listeners.orderedStream().filter(listener -> !own || listener.receivesOwnChanges()).forEach(listener -> {
+            try {
+                listener.invalidate(invalidation);
+            } catch (RuntimeException e) {
+                log.warn("cache invalidation failed in {}", listener.getClass().getSimpleName(), e);
+            }
+        });
+    }
+
+    private synchronized void merge(Changes changes) {
+        pending.addAll(changes);
+    }
+
+    // 트랜잭션마다 하나만 등록한다. 트랜잭션 밖이면 null
+    private Changes transactionChanges() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges && ((PendingChanges) synchronization).owner() == this) {
+                return ((PendingChanges) synchronization).changes;
+            }
+        }
+        PendingChanges pendingChanges = new PendingChanges();
+        TransactionSynchronizationManager.registerSynchronization(pendingChanges);
+        return pendingChanges.changes;
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+        private final Changes changes = new Changes();
+
+        CacheInvalidations owner() {
+            return CacheInvalidations.this;
+        }
+
+        @Override
+        public void afterCommit() {
+            merge(changes);
+        }
+    }
+
+    private class Changes {
+        private final Map<String, Set<String>> entityIds = new HashMap<>();
+        private final Set<String> regions = new HashSet<>();
+
+        void addEntity(String aggregateType, String id) {
+            if (regions.contains(aggregateType)) {
+                return;
+            }
+            Set<String> ids = entityIds.computeIfAbsent(aggregateType, k -> new HashSet<>());
+            ids.add(id);
+            if (ids.size() > maxIdsPerType) {
+                addRegion(aggregateType);
+            }
+        }
+
+        void addRegion(String aggregateType) {
+            regions.add(aggregateType);
+            entityIds.remove(aggregateType);
+        }
+
+        void addAll(Changes other) {
+            other.regions.forEach(this::addRegion);
+            other.entityIds.forEach((type, ids) -> ids.forEach(id -> addEntity(type, id)));
+        }
+
+        boolean isEmpty() {
+            return entityIds.isEmpty() && regions.isEmpty();
+        }
+
+        Invalidation toInvalidation(String origin) {
+            return new Invalidation(origin, entityIds, regions);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package study.datajpa.cache;
+
+import org.hibernate.Cache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * 다른 노드의 변경을 Hibernate 2차 캐시와 쿼리 캐시에 반영한다.
+ * 지금은 @Cache 엔티티가 없어 evict 가 아무 일도 하지 않지만, 2차 캐시를 켜면 별도 설정 없이 노드 간 무효화가 된다.
+ * 연관 컬렉션(Team.members 등)은 어느 쪽이 바뀌었는지 따지지 않고 모두 비운다.
+ */
+@Component
+public class HibernateCacheInvalidator implements InvalidationListener {
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    public HibernateCacheInvalidator(EntityManagerFactory emf) {
+        this.sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+    }
+
+    @Override
+    public void invalidate(Invalidation invalidation) {
+        Cache cache = sessionFactory.getCache();
+        for (String aggregateType : invalidation.aggregateTypes()) {
+            EntityPersister persister = persister(aggregateType);
+            if (persister == null) {
+                continue;
+            }
+            Class<?> entityClass = persister.getMappedClass();
+            Class<?> idType = persister.getIdentifierType().getReturnedClass();
+            if (invalidation.regionInvalidated(aggregateType) || !convertible(idType)) {
+                cache.evictEntityData(entityClass);
+                continue;
+            }
+            invalidation.ids(aggregateType).forEach(id -> cache.evictEntityData(entityClass, convert(id, idType)));
+        }
+        cache.evictCollectionData();
+        cache.evictQueryRegions();
+    }
+
+    private EntityPersister persister(String aggregateType) {
+        return sessionFactory.getMetamodel().entityPersisters().values().stream()
+                .filter(persister -> persister.getMappedClass().getSimpleName().equals(aggregateType))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static boolean convertible(Class<?> idType) {
+        return idType == Long.class || idType == Integer.class || idType == String.class || idType == UUID.class;
+    }
+
+    private static Serializable convert(String id, Class<?> idType) {
+        if (idType == Long.class) {
+            return Long.valueOf(id);
+        }
+        if (idType == Integer.class) {
+            return Integer.valueOf(id);
+        }
+        if (idType == UUID.class) {
+            return UUID.fromString(id);
+        }
+        return id;
+    }
+}
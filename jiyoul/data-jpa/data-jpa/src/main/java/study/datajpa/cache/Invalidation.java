@@ -0,0 +1,58 @@
+package study.datajpa.cache;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 한 노드에서 flush 주기 동안 모인 캐시 무효화 묶음.
+ * entityIds 는 애그리거트 타입별로 바뀐 식별자, regions 는 벌크 연산처럼 어느 행이 바뀌었는지 모르는 타입이다.
+ * 같은 타입이 regions 에 있으면 entityIds 에는 넣지 않는다.
+ */
+@Getter
+@ToString
+public class Invalidation {
+
+    private final String origin;
+    private final Map<String, Set<String>> entityIds;
+    private final Set<String> regions;
+
+    @JsonCreator
+    public Invalidation(@JsonProperty("origin") String origin,
+                        @JsonProperty("entityIds") Map<String, Set<String>> entityIds,
+                        @JsonProperty("regions") Set<String> regions) {
+        this.origin = origin;
+        this.entityIds = entityIds == null ? Map.of() : entityIds;
+        this.regions = regions == null ? Set.of() : regions;
+    }
+
+    public Set<String> ids(String aggregateType) {
+        return entityIds.getOrDefault(aggregateType, Set.of());
+    }
+
+    public boolean regionInvalidated(String aggregateType) {
+        return regions.contains(aggregateType);
+    }
+
+    public boolean covers(String aggregateType) {
+        return regionInvalidated(aggregateType) || entityIds.containsKey(aggregateType);
+    }
+
+    @JsonIgnore
+    public Set<String> aggregateTypes() {
+        Set<String> types = new HashSet<>(entityIds.keySet());
+        types.addAll(regions);
+        return types;
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return entityIds.isEmpty() && regions.isEmpty();
+    }
+}
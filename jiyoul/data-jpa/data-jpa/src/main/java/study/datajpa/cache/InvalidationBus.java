@@ -0,0 +1,22 @@
+package study.datajpa.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * 노드 간 캐시 무효화 전달 수단. app.invalidation.bus 로 구현을 고른다.
+ * 구독자는 자기 노드가 보낸 묶음도 받을 수 있으므로 origin 으로 걸러야 한다.
+ */
+public interface InvalidationBus {
+
+    void publish(Invalidation invalidation);
+
+    void subscribe(Consumer<Invalidation> subscriber);
+
+    /**
+     * 모든 쓰기 노드가 이 프로세스 안에 있는지. false 면 다른 노드의 커밋이 아직 도착하지 않았거나
+     * (JdbcInvalidationBus 의 gap-timeout 처럼) 건너뛰어졌을 수 있다.
+     */
+    default boolean singleProcess() {
+        return false;
+    }
+}
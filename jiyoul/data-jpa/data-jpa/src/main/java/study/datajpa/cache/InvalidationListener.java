@@ -0,0 +1,17 @@
+package study.datajpa.cache;
+
+/**
+ * 무효화 묶음을 받는 캐시. 스케줄러 스레드에서 트랜잭션 없이 호출된다.
+ * <p>
+ * outbox 이벤트는 노드 하나의 relay 만 받으므로 노드 메모리에만 있는 구조(색인, 필터, 캐시)는 자기 노드의 변경도
+ * 묶음으로 받아야 한다. 그런 리스너는 receivesOwnChanges() 를 true 로 둔다.
+ * 자기 변경을 커밋 시점에 이미 반영하는 리스너(ChangeVersions 등)는 다른 노드의 묶음만 받는다.
+ */
+public interface InvalidationListener {
+
+    void invalidate(Invalidation invalidation);
+
+    default boolean receivesOwnChanges() {
+        return false;
+    }
+}
@@ -0,0 +1,146 @@
+package study.datajpa.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 모든 노드가 같이 쓰는 DB 의 cache_invalidation 테이블로 무효화를 주고받는다.
+ * 발행은 행 하나 insert, 수신은 poll-interval-ms 마다 마지막으로 읽은 id 이후를 읽는다.
+ * <p>
+ * IDENTITY 값은 커밋 순서와 다를 수 있어서(다른 노드의 작은 id 가 늦게 커밋) 아직 안 보인 id 가 있으면
+ * 그 앞에 watermark 를 두고 기다리다가 gap-timeout-ms 가 지나면 롤백 등으로 비어 있는 id 로 보고 넘어간다.
+ * 기동 전에 쌓인 행은 읽지 않는다. 그때의 캐시는 비어 있다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.invalidation.bus", havingValue = "jdbc")
+public class JdbcInvalidationBus implements InvalidationBus {
+
+    private static final String INSERT = "insert into cache_invalidation (origin, payload, created_date) values (?, ?, ?)";
+    private static final int POLL_BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final long gapTimeoutMillis;
+    private final long retentionHours;
+    private final List<Consumer<Invalidation>> subscribers = new CopyOnWriteArrayList<>();
+
+    // poll() 에서만 접근한다
+    private long watermark = -1; // 이 id 까지는 모두 전달했다
+    private final NavigableSet<Long> delivered = new TreeSet<>(); // watermark 보다 크면서 이미 전달한 id
+    private long gapSince;
+
+    public JdbcInvalidationBus(JdbcTemplate jdbcTemplate,
+                               ObjectMapper objectMapper,
+                               @Value("${app.invalidation.gap-timeout-ms:5000}") long gapTimeoutMillis,
+                               @Value("${app.invalidation.retention-hours:1}") long retentionHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.retentionHours = retentionHours;
+    }
+
+    @Override
+    public void publish(Invalidation invalidation) {
+        jdbcTemplate.update(INSERT, invalidation.getOrigin(), toJson(invalidation), Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    @Override
+    public void subscribe(Consumer<Invalidation> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Scheduled(fixedDelayString = "${app.invalidation.poll-interval-ms:200}")
+    public synchronized void poll() {
+        if (watermark < 0) {
+            Long max = jdbcTemplate.queryForObject("select max(cache_invalidation_id) from cache_invalidation", Long.class);
+            watermark = max == null ? 0 : max;
+            return;
+        }
+
+        List<Row> rows;
+        do {
+            rows = jdbcTemplate.query(
+                    "select cache_invalidation_id, payload from cache_invalidation where cache_invalidation_id > ? " +
+                            "order by cache_invalidation_id limit ?",
+                    (rs, rowNum) -> new Row(rs.getLong(1), rs.getString(2)), watermark, POLL_BATCH_SIZE);
+            for (Row row : rows) {
+                if (delivered.add(row.id)) {
+                    deliver(row);
+                }
+            }
+        } while (advance() && rows.size() == POLL_BATCH_SIZE);
+    }
+
+    @Scheduled(fixedDelayString = "PT1H", initialDelayString = "PT1H")
+    public void purge() {
+        jdbcTemplate.update("delete from cache_invalidation where created_date < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours)));
+    }
+
+    // watermark 를 연속으로 전달된 id 까지 올리고, 더 올라갔으면 true
+    private boolean advance() {
+        long before = watermark;
+        skipDelivered();
+        if (delivered.isEmpty()) {
+            gapSince = 0;
+        } else if (gapSince == 0) {
+            gapSince = System.currentTimeMillis();
+        } else if (System.currentTimeMillis() - gapSince > gapTimeoutMillis) {
+            log.debug("cache invalidation ids {}..{} never appeared, skipping", watermark + 1, delivered.first() - 1);
+            watermark = delivered.first() - 1;
+            gapSince = 0;
+            skipDelivered();
+        }
+        return watermark > before;
+    }
+
+    private void skipDelivered() {
+        while (delivered.remove(watermark + 1)) {
+            watermark++;
+        }
+    }
+
+    private void deliver(Row row) {
+        Invalidation invalidation;
+        try {
+            invalidation = objectMapper.readValue(row.payload, Invalidation.class);
+        } catch (JsonProcessingException e) {
+            log.warn("invalid cache invalidation payload, id {}", row.id, e);
+            return;
+        }
+        subscribers.forEach(subscriber -> subscriber.accept(invalidation));
+    }
+
+    private String toJson(Invalidation invalidation) {
+        try {
+            return objectMapper.writeValueAsString(invalidation);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("cache invalidation serialization failed", e);
+        }
+    }
+
+    private static class Row {
+        private final long id;
+        private final String payload;
+
+        private Row(long id, String payload) {
+            this.id = id;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package study.datajpa.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 같은 프로세스 안의 구독자에게 바로 전달한다. 단일 노드 실행(기본값)과 여러 노드를 흉내 내는 테스트용.
+ * 여러 노드로 띄우려면 app.invalidation.bus=jdbc 로 바꿔야 한다.
+ */
+@Component
+@ConditionalOnProperty(name = "app.invalidation.bus", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackInvalidationBus implements InvalidationBus {
+
+    private final List<Consumer<Invalidation>> subscribers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(Invalidation invalidation) {
+        subscribers.forEach(subscriber -> subscriber.accept(invalidation));
+    }
+
+    @Override
+    public void subscribe(Consumer<Invalidation> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public boolean singleProcess() {
+        return true;
+    }
+}
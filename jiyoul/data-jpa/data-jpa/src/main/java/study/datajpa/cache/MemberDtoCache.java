@@ -0,0 +1,185 @@
+package study.datajpa.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import study.datajpa.cache.MemberDtoCodec.EncodedRow;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * MemberDto 단건(id)과 페이지(page cursor)를 오프힙에 보관한다.
+ * 페이지를 적재할 때 포함된 행도 id 키로 함께 저장한다.
+ * JPA 쓰기는 MemberDtoCacheInvalidator 가 바로 비우고, 벌크 연산, 쓰기 지연, 보관 처리처럼 JPA 를 거치지 않은 변경과
+ * 다른 노드의 변경은 무효화 묶음으로 받는다.
+ * loader 는 캐시 밖에서 커밋 전 값을 읽을 수 있으므로, 로딩을 시작한 뒤 해당 키가 비워졌으면 읽은 값을 저장하지 않는다.
+ * <p>
+ * 페이지 key 에는 세대 번호가 들어간다. 회원이 바뀌면 세대만 올리고, 이전 세대 페이지는 더 이상 읽히지 않다가 LRU 로 밀려난다.
+ * 팀은 이름이 바뀐 경우에만(TEAM_NAME 에 옛 이름이 온다) 그 이름을 가진 행을 비운다. 팀 추가나 member_count 변경은 무시한다.
+ */
+@Component
+public class MemberDtoCache implements InvalidationListener {
+
+    private static final String ROW_PREFIX = "member:";
+    private static final String PAGE_PREFIX = "page:";
+    private static final String MEMBER_AGGREGATE = Member.class.getSimpleName();
+    private static final String TEAM_AGGREGATE = Team.class.getSimpleName();
+
+    /**
+     * 무효화 묶음에서 이름이 바뀐 팀의 옛 이름을 담는 타입. region 이면 어떤 이름이 바뀌었는지 모르는 경우다.
+     */
+    public static final String TEAM_NAME = TEAM_AGGREGATE + ".name";
+
+    private final OffHeapCache cache;
+    private final AtomicLong pageGeneration = new AtomicLong();
+
+    public MemberDtoCache(@Value("${app.cache.member-dto.max-bytes:67108864}") long maxBytes) {
+        this.cache = new OffHeapCache(maxBytes);
+    }
+
+    public Optional<MemberDto> getMember(Long id, Supplier<Optional<MemberDto>> loader) {
+        ByteBuffer cached = cache.get(rowKey(id));
+        if (cached != null) {
+            return Optional.of(MemberDtoCodec.readRow(cached));
+        }
+
+        long version = cache.version();
+        Optional<MemberDto> loaded = loader.get();
+        loaded.ifPresent(dto -> putRow(MemberDtoCodec.encode(dto), version));
+        return loaded;
+    }
+
+    /**
+     * ids 순서대로 반환한다. 캐시에 없는 id 만 모아 loader 를 한 번 호출하고, loader 가 돌려주지 않은 id 는 건너뛴다.
+     */
+    public List<MemberDto> getMembers(List<Long> ids, Function<List<Long>, List<MemberDto>> loader) {
+        Map<Long, MemberDto> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            ByteBuffer cached = cache.get(rowKey(id));
+            if (cached != null) {
+                found.put(id, MemberDtoCodec.readRow(cached));
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long version = cache.version();
+            for (MemberDto dto : loader.apply(missing)) {
+                putRow(MemberDtoCodec.encode(dto), version);
+                found.put(dto.getId(), dto);
+            }
+        }
+
+        return ids.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    public Page<MemberDto> getPage(Pageable pageable, Supplier<Page<MemberDto>> loader) {
+        long generation = pageGeneration.get();
+        String key = pageKey(generation, pageable);
+        ByteBuffer cached = cache.get(key);
+        if (cached != null) {
+            long total = MemberDtoCodec.readTotal(cached);
+            return new PageImpl<>(MemberDtoCodec.readRows(cached), pageable, total);
+        }
+
+        long version = cache.version();
+        Page<MemberDto> loaded = loader.get();
+        List<EncodedRow> rows = loaded.getContent().stream()
+                .map(MemberDtoCodec::encode)
+                .collect(Collectors.toList());
+        rows.forEach(row -> putRow(row, version));
+        // 로딩 중에 세대가 바뀌었으면 이미 읽히지 않는 key 이므로 넣지 않는다.
+        if (pageGeneration.get() == generation) {
+            cache.put(key, MemberDtoCodec.pageSize(rows),
+                    buffer -> MemberDtoCodec.writePage(buffer, loaded.getTotalElements(), rows), version);
+        }
+        return loaded;
+    }
+
+    public void evictMember(Long id) {
+        cache.remove(rowKey(id));
+        evictPages();
+    }
+
+    public void evictPages() {
+        pageGeneration.incrementAndGet();
+    }
+
+    /**
+     * teamNames 중 하나를 팀 이름으로 가진 행과 모든 페이지를 비운다. 전체 엔트리를 훑으므로 팀 이름 변경에만 쓴다.
+     */
+    public void evictTeams(Set<String> teamNames) {
+        cache.removeIf(key -> key.startsWith(ROW_PREFIX),
+                value -> {
+                    String teamName = MemberDtoCodec.readRow(value).getTeamName();
+                    return teamName != null && teamNames.contains(teamName);
+                });
+        evictPages();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    // 팀 범위 변경은 이름이 바뀌었는지 알 수 없으므로 전부 비운다.
+    @Override
+    public void invalidate(Invalidation invalidation) {
+        if (invalidation.regionInvalidated(MEMBER_AGGREGATE) || invalidation.regionInvalidated(TEAM_AGGREGATE)
+                || invalidation.regionInvalidated(TEAM_NAME)) {
+            clear();
+            return;
+        }
+        Set<String> renamedTeams = invalidation.ids(TEAM_NAME);
+        if (!renamedTeams.isEmpty()) {
+            evictTeams(renamedTeams);
+        }
+        Set<String> ids = invalidation.ids(MEMBER_AGGREGATE);
+        if (ids.isEmpty()) {
+            return;
+        }
+        ids.forEach(id -> cache.remove(ROW_PREFIX + id));
+        evictPages();
+    }
+
+    @Override
+    public boolean receivesOwnChanges() {
+        return true;
+    }
+
+    public long usedBytes() {
+        return cache.usedBytes();
+    }
+
+    private void putRow(EncodedRow row, long version) {
+        cache.put(rowKey(row.id()), row.size(), row::write, version);
+    }
+
+    private static String rowKey(Long id) {
+        return ROW_PREFIX + id;
+    }
+
+    private static String pageKey(long generation, Pageable pageable) {
+        return PAGE_PREFIX + generation + ":" + pageable.getPageNumber() + ":" + pageable.getPageSize() + ":" + pageable.getSort();
+    }
+}
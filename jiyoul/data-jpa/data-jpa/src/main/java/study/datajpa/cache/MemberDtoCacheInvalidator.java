@@ -0,0 +1,123 @@
+package study.datajpa.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.config.HibernateEventListeners;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.OutboxEvent;
+import study.datajpa.entity.Team;
+import study.datajpa.outbox.JdbcChangeListener;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Member/Team 쓰기 시 MemberDtoCache 무효화.
+ * flush 시점에 한 번, 커밋 후에 한 번 더 비워서 커밋 전 다른 요청이 옛 값을 다시 채워넣는 경우를 막는다.
+ * 팀은 이름이 바뀐 경우에만 옛 이름을 가진 행을 비우고, 옛 이름을 무효화 묶음(MemberDtoCache.TEAM_NAME)으로 다른 노드에도 알린다.
+ * JDBC 로 기록된 팀 변경은 옛 이름을 모르므로 name 이 payload 에 있으면 TEAM_NAME 전체를 무효화한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberDtoCacheInvalidator implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        JdbcChangeListener {
+
+    private static final String TEAM_AGGREGATE = Team.class.getSimpleName();
+
+    private final EntityManagerFactory emf;
+    private final MemberDtoCache memberDtoCache;
+    private final CacheInvalidations cacheInvalidations;
+
+    @PostConstruct
+    public void register() {
+        HibernateEventListeners.append(emf, EventType.POST_INSERT, this);
+        HibernateEventListeners.append(emf, EventType.POST_UPDATE, this);
+        HibernateEventListeners.append(emf, EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            evictMember((Member) event.getEntity());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Member) {
+            evictMember((Member) event.getEntity());
+            return;
+        }
+        if (!(event.getEntity() instanceof Team)) {
+            return;
+        }
+        if (event.getOldState() == null) {
+            // 준영속 엔티티를 스냅샷 없이 update 한 경우
+            evict(memberDtoCache::clear);
+            cacheInvalidations.regionChanged(MemberDtoCache.TEAM_NAME);
+            return;
+        }
+        int index = event.getPersister().getEntityMetamodel().getPropertyIndex("name");
+        String oldName = (String) event.getOldState()[index];
+        if (!Objects.equals(oldName, event.getState()[index])) {
+            evict(() -> memberDtoCache.evictTeams(Collections.singleton(oldName)));
+            cacheInvalidations.entityChanged(MemberDtoCache.TEAM_NAME, oldName);
+        }
+    }
+
+    // 회원이 남아 있는 팀은 지울 수 없으므로 팀 삭제는 행에 영향이 없다.
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            evictMember((Member) event.getEntity());
+        }
+    }
+
+    @Override
+    public void changeRecorded(String aggregateType, Object id, String eventType, Map<String, Object> payload) {
+        if (TEAM_AGGREGATE.equals(aggregateType) && OutboxEvent.UPDATE.equals(eventType) && payload.containsKey("name")) {
+            evict(memberDtoCache::clear);
+            cacheInvalidations.regionChanged(MemberDtoCache.TEAM_NAME);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    private void evictMember(Member member) {
+        evict(() -> memberDtoCache.evictMember(member.getId()));
+    }
+
+    private void evict(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package study.datajpa.cache;
+
+import study.datajpa.dto.MemberDto;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MemberDto 행 직렬화: id(long) + username(len,utf8) + teamName(len,utf8), null 문자열은 길이 -1.
+ * 페이지는 total(long) + count(int) + 행 목록.
+ */
+final class MemberDtoCodec {
+
+    private MemberDtoCodec() {
+    }
+
+    static EncodedRow encode(MemberDto dto) {
+        return new EncodedRow(dto);
+    }
+
+    static int pageSize(List<EncodedRow> rows) {
+        int size = Long.BYTES + Integer.BYTES;
+        for (EncodedRow row : rows) {
+            size += row.size();
+        }
+        return size;
+    }
+
+    static void writePage(ByteBuffer buffer, long total, List<EncodedRow> rows) {
+        buffer.putLong(total);
+        buffer.putInt(rows.size());
+        rows.forEach(row -> row.write(buffer));
+    }
+
+    static MemberDto readRow(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        String username = readString(buffer);
+        String teamName = readString(buffer);
+        return new MemberDto(id, username, teamName);
+    }
+
+    static long readTotal(ByteBuffer buffer) {
+        return buffer.getLong();
+    }
+
+    static List<MemberDto> readRows(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<MemberDto> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(readRow(buffer));
+        }
+        return rows;
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static final class EncodedRow {
+        private final long id;
+        private final byte[] username;
+        private final byte[] teamName;
+
+        private EncodedRow(MemberDto dto) {
+            this.id = dto.getId();
+            this.username = bytes(dto.getUsername());
+            this.teamName = bytes(dto.getTeamName());
+        }
+
+        long id() {
+            return id;
+        }
+
+        int size() {
+            return Long.BYTES
+                    + Integer.BYTES + (username == null ? 0 : username.length)
+                    + Integer.BYTES + (teamName == null ? 0 : teamName.length);
+        }
+
+        void write(ByteBuffer buffer) {
+            buffer.putLong(id);
+            writeString(buffer, username);
+            writeString(buffer, teamName);
+        }
+    }
+}
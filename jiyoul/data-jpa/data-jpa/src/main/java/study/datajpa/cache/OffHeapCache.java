@@ -0,0 +1,477 @@
+package study.datajpa.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 직렬화된 값을 direct ByteBuffer slab 에 보관하는 LRU 캐시.
+ * <p>
+ * 기동 시 maxBytes 만큼의 slab 을 몇 개(하나당 최대 1GB) 할당해 blockSize 블록으로 나누고, 엔트리는
+ * [hash, key 길이, value 길이, key, value] 를 블록 체인에 나눠 쓴다. 블록 체인, 빈 블록 목록, LRU 순서, key 해시 테이블은
+ * 모두 int 배열이라 엔트리마다 힙 객체(ByteBuffer, Cleaner, Map.Entry, key 문자열)가 생기지 않는다.
+ * 따라서 maxBytes 가 실제로 쓰는 네이티브 메모리의 상한이고, 축출은 GC 를 기다리지 않고 블록을 바로 재사용한다.
+ * 읽을 때는 값을 힙 버퍼로 복사해서 돌려준다.
+ * <p>
+ * 캐시 밖에서 값을 읽는 동안 무효화된 key 에 옛 값이 다시 들어가지 않도록, 로딩 전에 version() 을 받아 두었다가
+ * put(key, size, writer, version) 으로 저장하면 그 사이 remove/removeIf/clear 가 있었던 경우 저장하지 않는다.
+ * remove 는 key 해시 stripe 단위로, removeIf 는 최근 몇 번의 조건을 key/value 에 다시 적용해서, clear 는 전체를 기준으로 비교한다.
+ * removeIf 는 전체 엔트리를 훑으므로 드문 변경에만 쓴다.
+ */
+public class OffHeapCache {
+
+    private static final int DEFAULT_BLOCK_SIZE = 64;
+    private static final int MAX_SLAB_BYTES = 1 << 30;
+    private static final int HEADER_BYTES = Integer.BYTES * 3;
+    private static final int NONE = -1;
+    private static final int INVALIDATION_STRIPES = 1024;
+    private static final int REMOVE_IF_HISTORY = 16;
+
+    private final int blockSize;
+    private final int blocksPerSlab;
+    private final int totalBlocks;
+    private final ByteBuffer[] slabs;
+
+    // 엔트리 안의 다음 블록. 빈 블록끼리도 이 배열로 이어져 있다.
+    private final int[] nextBlock;
+    private int freeHead;
+    private int freeBlocks;
+
+    // head 블록 기준 LRU 이중 연결 리스트. first 가 가장 최근에 쓴 엔트리
+    private final int[] lruPrev;
+    private final int[] lruNext;
+    private int lruFirst = NONE;
+    private int lruLast = NONE;
+
+    // open addressing(linear probing) 해시 테이블: key 해시 -> head 블록
+    private final int[] tableHash;
+    private final int[] tableHead;
+    private final int tableMask;
+    private int entries;
+
+    private long version;
+    private long clearedAt;
+    private final long[] invalidatedAt = new long[INVALIDATION_STRIPES];
+    private final Deque<Removal> removals = new ArrayDeque<>();
+
+    public OffHeapCache(long maxBytes) {
+        this(maxBytes, DEFAULT_BLOCK_SIZE);
+    }
+
+    public OffHeapCache(long maxBytes, int blockSize) {
+        if (blockSize < HEADER_BYTES) {
+            throw new IllegalArgumentException("blockSize must be at least " + HEADER_BYTES + " bytes: " + blockSize);
+        }
+        this.blockSize = blockSize;
+        this.blocksPerSlab = MAX_SLAB_BYTES / blockSize;
+        this.totalBlocks = (int) Math.min(Integer.MAX_VALUE / 2, Math.max(1, maxBytes / blockSize));
+
+        int slabCount = (totalBlocks + blocksPerSlab - 1) / blocksPerSlab;
+        this.slabs = new ByteBuffer[slabCount];
+        for (int i = 0; i < slabCount; i++) {
+            int blocks = Math.min(blocksPerSlab, totalBlocks - i * blocksPerSlab);
+            slabs[i] = ByteBuffer.allocateDirect(blocks * blockSize);
+        }
+
+        this.nextBlock = new int[totalBlocks];
+        this.lruPrev = new int[totalBlocks];
+        this.lruNext = new int[totalBlocks];
+        // 엔트리는 최대 totalBlocks 개이므로 load factor 0.5 이하가 된다.
+        int tableSize = Integer.highestOneBit(Math.max(16, totalBlocks) - 1) << 2;
+        this.tableHash = new int[tableSize];
+        this.tableHead = new int[tableSize];
+        this.tableMask = tableSize - 1;
+        reset();
+    }
+
+    /**
+     * @return 값을 복사한 읽기 전용 버퍼 (position 0). 없으면 null
+     */
+    public synchronized ByteBuffer get(String key) {
+        int slot = find(key, hash(key));
+        if (slot == NONE) {
+            return null;
+        }
+        int head = tableHead[slot];
+        touch(head);
+        return readValue(head);
+    }
+
+    /**
+     * 현재 무효화 version. 캐시 밖에서 값을 읽기 전에 받아 두었다가 put 에 넘긴다.
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * size 바이트를 writer 로 채워 저장한다. 예산보다 큰 값은 저장하지 않는다.
+     */
+    public void put(String key, int size, ByteBufferWriter writer) {
+        put(key, size, writer, Long.MAX_VALUE);
+    }
+
+    /**
+     * loadedAt(version()) 이후 key 가 무효화되지 않았을 때만 저장한다.
+     *
+     * @return 저장했으면 true
+     */
+    public boolean put(String key, int size, ByteBufferWriter writer, long loadedAt) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer value = ByteBuffer.allocate(size);
+        writer.write(value);
+
+        int hash = hash(key);
+        synchronized (this) {
+            if (invalidatedSince(key, hash, value, loadedAt)) {
+                return false;
+            }
+
+            int existing = find(key, hash);
+            if (existing != NONE) {
+                removeSlot(existing);
+            }
+            int needed = blocksFor(HEADER_BYTES + keyBytes.length + size);
+            if (needed > totalBlocks) {
+                return false;
+            }
+            while (freeBlocks < needed) {
+                evictLast();
+            }
+
+            int head = allocate(needed);
+            Cursor cursor = new Cursor(head, 0);
+            cursor.writeInt(hash);
+            cursor.writeInt(keyBytes.length);
+            cursor.writeInt(size);
+            cursor.write(keyBytes);
+            cursor.write(value.array());
+
+            insert(hash, head);
+            linkFirst(head);
+            entries++;
+            return true;
+        }
+    }
+
+    public synchronized void remove(String key) {
+        int hash = hash(key);
+        invalidatedAt[stripe(hash)] = ++version;
+        int slot = find(key, hash);
+        if (slot != NONE) {
+            removeSlot(slot);
+        }
+    }
+
+    /**
+     * keyPredicate 를 통과한 엔트리 중 valuePredicate 도 통과한 엔트리를 지운다. value 는 key 가 맞을 때만 읽는다.
+     */
+    public synchronized void removeIf(Predicate<String> keyPredicate, Predicate<ByteBuffer> valuePredicate) {
+        Removal removal = new Removal(++version, keyPredicate, valuePredicate);
+        removals.addLast(removal);
+        if (removals.size() > REMOVE_IF_HISTORY) {
+            clearedAt = removals.removeFirst().version;
+        }
+        for (int head = lruFirst; head != NONE; ) {
+            int current = head;
+            head = lruNext[current];
+            if (removal.test(readKey(current), () -> readValue(current))) {
+                removeSlot(slotOf(current));
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        clearedAt = ++version;
+        removals.clear();
+        reset();
+    }
+
+    /**
+     * 엔트리가 차지한 블록 바이트 합. 블록 단위로 올림하므로 저장한 값의 크기보다 크다.
+     */
+    public synchronized long usedBytes() {
+        return (long) (totalBlocks - freeBlocks) * blockSize;
+    }
+
+    public synchronized int size() {
+        return entries;
+    }
+
+    // 기록이 밀려난 removeIf 는 clear 와 같게 본다.
+    private boolean invalidatedSince(String key, int hash, ByteBuffer value, long loadedAt) {
+        if (clearedAt > loadedAt || invalidatedAt[stripe(hash)] > loadedAt) {
+            return true;
+        }
+        for (Removal removal : removals) {
+            if (removal.version > loadedAt && removal.test(key, () -> ByteBuffer.wrap(value.array()).asReadOnlyBuffer())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void reset() {
+        for (int i = 0; i < totalBlocks; i++) {
+            nextBlock[i] = i + 1 < totalBlocks ? i + 1 : NONE;
+        }
+        freeHead = 0;
+        freeBlocks = totalBlocks;
+        lruFirst = NONE;
+        lruLast = NONE;
+        Arrays.fill(tableHead, NONE);
+        entries = 0;
+    }
+
+    private int blocksFor(int bytes) {
+        return (bytes + blockSize - 1) / blockSize;
+    }
+
+    // 빈 블록 목록 앞에서 count 개를 떼어 체인으로 반환한다.
+    private int allocate(int count) {
+        int head = freeHead;
+        int last = head;
+        for (int i = 1; i < count; i++) {
+            last = nextBlock[last];
+        }
+        freeHead = nextBlock[last];
+        nextBlock[last] = NONE;
+        freeBlocks -= count;
+        return head;
+    }
+
+    private void release(int head) {
+        int last = head;
+        int count = 1;
+        while (nextBlock[last] != NONE) {
+            last = nextBlock[last];
+            count++;
+        }
+        nextBlock[last] = freeHead;
+        freeHead = head;
+        freeBlocks += count;
+    }
+
+    private void evictLast() {
+        removeSlot(slotOf(lruLast));
+    }
+
+    private void removeSlot(int slot) {
+        int head = tableHead[slot];
+        deleteSlot(slot);
+        unlink(head);
+        release(head);
+        entries--;
+    }
+
+    private int find(String key, int hash) {
+        byte[] keyBytes = null;
+        for (int slot = hash & tableMask; tableHead[slot] != NONE; slot = (slot + 1) & tableMask) {
+            if (tableHash[slot] != hash) {
+                continue;
+            }
+            if (keyBytes == null) {
+                keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            }
+            if (keyEquals(tableHead[slot], keyBytes)) {
+                return slot;
+            }
+        }
+        return NONE;
+    }
+
+    private int slotOf(int head) {
+        int slot = readInt(head, 0) & tableMask;
+        while (tableHead[slot] != head) {
+            slot = (slot + 1) & tableMask;
+        }
+        return slot;
+    }
+
+    private void insert(int hash, int head) {
+        int slot = hash & tableMask;
+        while (tableHead[slot] != NONE) {
+            slot = (slot + 1) & tableMask;
+        }
+        tableHash[slot] = hash;
+        tableHead[slot] = head;
+    }
+
+    // tombstone 없이 뒤의 엔트리를 당겨 probe 체인을 유지한다.
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        for (int i = (slot + 1) & tableMask; tableHead[i] != NONE; i = (i + 1) & tableMask) {
+            int home = tableHash[i] & tableMask;
+            if (((i - home) & tableMask) >= ((i - hole) & tableMask)) {
+                tableHash[hole] = tableHash[i];
+                tableHead[hole] = tableHead[i];
+                hole = i;
+            }
+        }
+        tableHead[hole] = NONE;
+    }
+
+    private void touch(int head) {
+        if (lruFirst != head) {
+            unlink(head);
+            linkFirst(head);
+        }
+    }
+
+    private void linkFirst(int head) {
+        lruPrev[head] = NONE;
+        lruNext[head] = lruFirst;
+        if (lruFirst != NONE) {
+            lruPrev[lruFirst] = head;
+        }
+        lruFirst = head;
+        if (lruLast == NONE) {
+            lruLast = head;
+        }
+    }
+
+    private void unlink(int head) {
+        int prev = lruPrev[head];
+        int next = lruNext[head];
+        if (prev != NONE) {
+            lruNext[prev] = next;
+        } else {
+            lruFirst = next;
+        }
+        if (next != NONE) {
+            lruPrev[next] = prev;
+        } else {
+            lruLast = prev;
+        }
+    }
+
+    private boolean keyEquals(int head, byte[] keyBytes) {
+        if (readInt(head, Integer.BYTES) != keyBytes.length) {
+            return false;
+        }
+        byte[] stored = new byte[keyBytes.length];
+        new Cursor(head, HEADER_BYTES).read(stored);
+        return Arrays.equals(stored, keyBytes);
+    }
+
+    private String readKey(int head) {
+        byte[] stored = new byte[readInt(head, Integer.BYTES)];
+        new Cursor(head, HEADER_BYTES).read(stored);
+        return new String(stored, StandardCharsets.UTF_8);
+    }
+
+    private ByteBuffer readValue(int head) {
+        Cursor cursor = new Cursor(head, HEADER_BYTES);
+        cursor.skip(readInt(head, Integer.BYTES));
+        byte[] value = new byte[readInt(head, Integer.BYTES * 2)];
+        cursor.read(value);
+        return ByteBuffer.wrap(value).asReadOnlyBuffer();
+    }
+
+    // 헤더는 항상 첫 블록 안에 있다(blockSize >= HEADER_BYTES).
+    private int readInt(int block, int offset) {
+        return slab(block).getInt(offsetOf(block) + offset);
+    }
+
+    private ByteBuffer slab(int block) {
+        return slabs[block / blocksPerSlab];
+    }
+
+    private int offsetOf(int block) {
+        return (block % blocksPerSlab) * blockSize;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int stripe(int hash) {
+        return hash & (INVALIDATION_STRIPES - 1);
+    }
+
+    // 블록 체인을 따라 순서대로 읽고 쓴다. 호출자가 락을 잡고 있으므로 slab 의 position 을 그대로 쓴다.
+    private class Cursor {
+        private int block;
+        private int offset;
+
+        Cursor(int block, int offset) {
+            this.block = block;
+            this.offset = offset;
+        }
+
+        void writeInt(int value) {
+            slab(block).putInt(offsetOf(block) + offset, value);
+            offset += Integer.BYTES;
+        }
+
+        void write(byte[] source) {
+            int done = 0;
+            while (done < source.length) {
+                int length = Math.min(source.length - done, available());
+                ByteBuffer slab = slab(block);
+                slab.position(offsetOf(block) + offset);
+                slab.put(source, done, length);
+                advance(length);
+                done += length;
+            }
+        }
+
+        void read(byte[] target) {
+            int done = 0;
+            while (done < target.length) {
+                int length = Math.min(target.length - done, available());
+                ByteBuffer slab = slab(block);
+                slab.position(offsetOf(block) + offset);
+                slab.get(target, done, length);
+                advance(length);
+                done += length;
+            }
+        }
+
+        void skip(int length) {
+            while (length > 0) {
+                int step = Math.min(length, available());
+                advance(step);
+                length -= step;
+            }
+        }
+
+        private int available() {
+            if (offset == blockSize) {
+                block = nextBlock[block];
+                offset = 0;
+            }
+            return blockSize - offset;
+        }
+
+        private void advance(int length) {
+            offset += length;
+        }
+    }
+
+    private static class Removal {
+        private final long version;
+        private final Predicate<String> keyPredicate;
+        private final Predicate<ByteBuffer> valuePredicate;
+
+        Removal(long version, Predicate<String> keyPredicate, Predicate<ByteBuffer> valuePredicate) {
+            this.version = version;
+            this.keyPredicate = keyPredicate;
+            this.valuePredicate = valuePredicate;
+        }
+
+        boolean test(String key, Supplier<ByteBuffer> value) {
+            return keyPredicate.test(key) && valuePredicate.test(value.get());
+        }
+    }
+
+    @FunctionalInterface
+    public interface ByteBufferWriter {
+        void write(ByteBuffer buffer);
+    }
+}
@@ -0,0 +1,17 @@
+package study.datajpa.config;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+
+import javax.persistence.EntityManagerFactory;
+
+public abstract class HibernateEventListeners {
+
+    public static <T> void append(EntityManagerFactory emf, EventType<T> type, T listener) {
+        emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class)
+                .appendListeners(type, listener);
+    }
+}
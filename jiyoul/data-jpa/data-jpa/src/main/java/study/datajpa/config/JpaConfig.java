@@ -0,0 +1,16 @@
+package study.datajpa.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.datajpa.monitor.IndexAdvisor;
+
+@Configuration
+public class JpaConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer statementInspectorCustomizer(IndexAdvisor indexAdvisor) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, indexAdvisor);
+    }
+}
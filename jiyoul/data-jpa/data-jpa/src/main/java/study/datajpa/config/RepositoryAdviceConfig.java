@@ -0,0 +1,47 @@
+package study.datajpa.config;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import study.datajpa.entity.Member;
+import study.datajpa.monitor.RepositoryMethodInterceptor;
+import study.datajpa.outbox.ModifyingQueryOutboxInterceptor;
+import study.datajpa.outbox.OutboxRecorder;
+import study.datajpa.search.MemberUsernameFilter;
+import study.datajpa.search.UsernameLookupInterceptor;
+
+/**
+ * 리포지토리 프록시 내부에 어드바이스를 추가한다.
+ * 커스터마이저는 트랜잭션 post processor 다음에 등록되므로 여기서 붙인 어드바이스는 리포지토리 트랜잭션 안에서 실행된다.
+ */
+@Configuration
+public class RepositoryAdviceConfig {
+
+    @Bean
+    public static BeanPostProcessor repositoryAdvicePostProcessor(ObjectProvider<OutboxRecorder> outboxRecorder,
+                                                                  ObjectProvider<MemberUsernameFilter> memberUsernameFilter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) -> {
+                                Class<?> domainType = repositoryInformation.getDomainType();
+                                proxyFactory.addAdvice(new RepositoryMethodInterceptor(repositoryInformation.getRepositoryInterface()));
+                                if (OutboxRecorder.isAggregate(domainType)) {
+                                    proxyFactory.addAdvice(new ModifyingQueryOutboxInterceptor(domainType, outboxRecorder.getObject()));
+                                }
+                                if (domainType == Member.class) {
+                                    // ExposeInvocationInterceptor 바로 다음, 트랜잭션 인터셉터보다 바깥
+                                    proxyFactory.addAdvice(1, new UsernameLookupInterceptor(memberUsernameFilter.getObject()));
+                                }
+                            }));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package study.datajpa.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import study.datajpa.controller.ConditionalGetInterceptor;
+import study.datajpa.monitor.PersistenceContextSizeInterceptor;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final PersistenceContextSizeInterceptor persistenceContextSizeInterceptor;
+    private final ConditionalGetInterceptor conditionalGetInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(persistenceContextSizeInterceptor);
+        registry.addInterceptor(conditionalGetInterceptor)
+                .addPathPatterns("/members", "/members/view", "/members/stream", "/members1/*", "/members2/*", "/members3/*");
+    }
+}
@@ -0,0 +1,93 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.outbox.ChangeVersions;
+import study.datajpa.repository.MemberRepository;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 회원 조회 GET 요청에 ETag 를 붙이고, If-None-Match 가 같으면 핸들러를 실행하지 않고 304 로 응답한다.
+ * 단건(/members{n}/{id}): 해당 회원의 lastModifiedDate + lastModifiedDate 에 남지 않는 벌크/JDBC 변경 카운터 + 팀 변경 카운터.
+ * 목록(/members...): Member/Team 변경 카운터 + 쿼리 문자열의 SHA-256. 강한 ETag 라서 다른 쿼리와 겹치지 않도록 hashCode 대신 다이제스트를 쓴다.
+ * 카운터는 ChangeVersions(노드 메모리)라서 epoch 를 함께 넣어 재기동하면 ETag 가 바뀐다.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    private final ChangeVersions changeVersions;
+    private final MemberRepository memberRepository;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod())) {
+            return true;
+        }
+
+        Optional<String> etag = etag(request);
+        if (etag.isEmpty()) {
+            return true;
+        }
+        // 일치하면 304 와 ETag 를 설정하고 true 를 반환한다.
+        return !new ServletWebRequest(request, response).checkNotModified(etag.get());
+    }
+
+    private Optional<String> etag(HttpServletRequest request) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String id = variables != null ? variables.get("id") : null;
+        if (id == null) {
+            return Optional.of(listEtag(request));
+        }
+
+        Long memberId;
+        try {
+            memberId = Long.valueOf(id);
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+        return memberRepository.findLastModifiedDateById(memberId)
+                .map(lastModified -> memberEtag(memberId, lastModified));
+    }
+
+    private String memberEtag(Long memberId, LocalDateTime lastModified) {
+        return "\"member-" + memberId
+                + "-" + changeVersions.epoch()
+                + "-" + lastModified.toEpochSecond(ZoneOffset.UTC) + "." + lastModified.getNano()
+                + "-" + changeVersions.unauditedVersion(Member.class)
+                + "-" + changeVersions.version(Team.class) + "\"";
+    }
+
+    private String listEtag(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return "\"members-" + changeVersions.epoch()
+                + "-" + changeVersions.version(Member.class)
+                + "-" + changeVersions.version(Team.class)
+                + "-" + digest(query != null ? query : "") + "\"";
+    }
+
+    private static String digest(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
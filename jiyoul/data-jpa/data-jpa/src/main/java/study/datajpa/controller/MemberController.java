@@ -1,37 +1,115 @@
 package study.datajpa.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.datajpa.cache.MemberDtoCache;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
+import study.datajpa.entity.MemberView;
+import study.datajpa.readmodel.MemberViewProjector;
+import study.datajpa.repository.MemberLoader;
 import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.MemberViewRepository;
+import study.datajpa.repository.MemberViewSpec;
+import study.datajpa.search.MemberUsernameIndex;
 
 import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final int MAX_BATCH_IDS = 1000;
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     private final MemberRepository memberRepository;
+    private final MemberLoader memberLoader;
+    private final MemberDtoCache memberDtoCache;
+    private final MemberViewRepository memberViewRepository;
+    private final MemberPageStreamer memberPageStreamer;
+    private final MemberUsernameIndex memberUsernameIndex;
+    private final ObjectProvider<MemberViewProjector> memberViewProjector;
 
+    //로더의 배치 조회를 요청 스레드에서 기다리지 않도록 CompletableFuture 를 그대로 반환한다(비동기 처리). 없는 id 는 404
     @GetMapping("/members1/{id}")
-    public String findMember1(@PathVariable("id") Long id) {
-        Member member = memberRepository.findById(id).get();
-        return member.getUsername();
+    public CompletableFuture<String> findMember1(@PathVariable("id") Long id) {
+        return loadMember(id).thenApply(MemberDto::getUsername);
     }
 
+    //전역 Converter 로 바인딩하면 변환 중에 로더를 기다려야 하므로 이 핸들러 안에서 id -> MemberDto 로 바꾼다
     @GetMapping("/members2/{id}")
-    public String findMember2(@PathVariable("id") Member member) {
-        return member.getUsername();
+    public CompletableFuture<String> findMember2(@PathVariable("id") Long id) {
+        return loadMember(id).thenApply(MemberDto::getUsername);
+    }
+
+    @GetMapping("/members3/{id}")
+    public MemberDto findMember3(@PathVariable("id") Long id) {
+        return memberDtoCache.getMember(id, () -> memberRepository.findById(id).map(MemberDto::new))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    //id 목록 순서대로 반환, 없는 id 는 빠진다. 캐시에 없는 것만 배치 조회
+    @PostMapping("/members/batch")
+    public List<MemberDto> findMembers(@RequestBody List<Long> ids) {
+        if (ids.size() > MAX_BATCH_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "at most " + MAX_BATCH_IDS + " ids");
+        }
+        return memberDtoCache.getMembers(ids, missing -> memberRepository.findAllByIdInOrder(missing).stream()
+                .map(MemberDto::new)
+                .collect(Collectors.toList()));
+    }
+
+    //username 접두어 검색, 메모리 색인에서 id 만 찾고 회원은 캐시/배치 조회로 채운다
+    @GetMapping("/members/search")
+    public List<MemberDto> search(@RequestParam String prefix, @RequestParam(defaultValue = "10") int limit) {
+        if (prefix.isEmpty() || limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "prefix required, limit 1.." + MAX_SEARCH_LIMIT);
+        }
+        return findMembers(memberUsernameIndex.search(prefix, limit));
     }
 
     @GetMapping("/members")
     public Page<MemberDto> list(Pageable pageable) {
-        return memberRepository.findAll(pageable).map(MemberDto::new);
+        return memberDtoCache.getPage(pageable, () -> memberRepository.findAll(pageable).map(MemberDto::new));
+    }
+
+    //큰 페이지용: Page 객체 없이 조회 결과를 바로 JSON 으로 스트리밍
+    @GetMapping(value = "/members/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody stream(Pageable pageable) {
+        return memberPageStreamer.stream(pageable);
+    }
+
+    //읽기 모델(member_view): 조인 없이 단일 테이블 스캔. app.read-model.enabled=false 면 채워지지 않으므로 404
+    @GetMapping("/members/view")
+    public Page<MemberDto> listView(@RequestParam(required = false) String username,
+                                    @RequestParam(required = false) String teamName,
+                                    Pageable pageable) {
+        if (memberViewProjector.getIfAvailable() == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "read model disabled");
+        }
+        Specification<MemberView> spec = MemberViewSpec.usernameStartsWith(username).and(MemberViewSpec.teamName(teamName));
+        return memberViewRepository.findAll(spec, pageable).map(MemberDto::new);
+    }
+
+    private CompletableFuture<MemberDto> loadMember(Long id) {
+        return memberLoader.load(id).thenApply(member -> member
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
     }
 
     @PostConstruct
@@ -0,0 +1,120 @@
+package study.datajpa.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.datajpa.dto.MemberDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.stream.Stream;
+
+/**
+ * Page&lt;MemberDto&gt; 를 만들지 않고 조회 결과를 바로 응답 스트림에 쓴다.
+ * DTO 생성자 프로젝션이라 영속성 컨텍스트에 엔티티가 쌓이지 않고, 행 단위로 JSON 을 내보낸다.
+ * 응답 형식: {"page":0,"size":20,"content":[...],"totalElements":100,"totalPages":5}
+ * 전체 건수는 content 를 다 쓴 뒤 같은 트랜잭션에서 센다.
+ */
+@Component
+public class MemberPageStreamer {
+
+    private static final String SELECT_PAGE = "select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) " +
+            "from Member m left join m.team t";
+    private static final String COUNT = "select count(m) from Member m";
+    // 정렬은 허용한 속성만 받는다. 그 외 속성은 400.
+    private static final Map<String, String> SORTABLE = Map.of(
+            "id", "m.id",
+            "username", "m.username",
+            "age", "m.age",
+            "teamName", "t.name");
+    private static final int FLUSH_EVERY = 200;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public MemberPageStreamer(ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public StreamingResponseBody stream(Pageable pageable) {
+        String query = SELECT_PAGE + orderBy(pageable.getSort());
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                readOnlyTransaction.executeWithoutResult(status -> write(generator, query, pageable));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+    }
+
+    private void write(JsonGenerator generator, String query, Pageable pageable) {
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("page", pageable.getPageNumber());
+            generator.writeNumberField("size", pageable.getPageSize());
+            generator.writeArrayFieldStart("content");
+
+            int rows = 0;
+            try (Stream<MemberDto> stream = em.createQuery(query, MemberDto.class)
+                    .setFirstResult((int) pageable.getOffset())
+                    .setMaxResults(pageable.getPageSize())
+                    .setHint(QueryHints.HINT_FETCH_SIZE, Math.min(pageable.getPageSize(), 500))
+                    .getResultStream()) {
+                for (MemberDto dto : (Iterable<MemberDto>) stream::iterator) {
+                    writeMember(generator, dto);
+                    if (++rows % FLUSH_EVERY == 0) {
+                        generator.flush();
+                    }
+                }
+            }
+            generator.writeEndArray();
+
+            long total = em.createQuery(COUNT, Long.class).getSingleResult();
+            generator.writeNumberField("totalElements", total);
+            generator.writeNumberField("totalPages", (total + pageable.getPageSize() - 1) / pageable.getPageSize());
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeMember(JsonGenerator generator, MemberDto dto) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", dto.getId());
+        generator.writeStringField("username", dto.getUsername());
+        generator.writeStringField("teamName", dto.getTeamName());
+        generator.writeEndObject();
+    }
+
+    private String orderBy(Sort sort) {
+        if (sort.isUnsorted()) {
+            return " order by m.id";
+        }
+        StringJoiner orderBy = new StringJoiner(", ", " order by ", "");
+        for (Sort.Order order : sort) {
+            String path = SORTABLE.get(order.getProperty());
+            if (path == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unsortable property: " + order.getProperty());
+            }
+            orderBy.add(path + (order.isAscending() ? " asc" : " desc"));
+        }
+        return orderBy.toString();
+    }
+}
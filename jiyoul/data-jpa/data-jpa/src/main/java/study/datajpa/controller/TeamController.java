@@ -0,0 +1,26 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.datajpa.dto.TeamSummaryDto;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final TeamRepository teamRepository;
+
+    @GetMapping("/teams/summary")
+    public List<TeamSummaryDto> summary() {
+        return teamRepository.findTeamSummaries();
+    }
+
+    @GetMapping("/teams/summary/counted")
+    public List<TeamSummaryDto> countedSummary() {
+        return teamRepository.findTeamSummariesByMemberCount();
+    }
+}
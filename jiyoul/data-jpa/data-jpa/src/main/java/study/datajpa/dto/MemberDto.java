@@ -2,6 +2,7 @@ package study.datajpa.dto;
 
 import lombok.Data;
 import study.datajpa.entity.Member;
+import study.datajpa.entity.MemberView;
 
 @Data
 public class MemberDto {
@@ -17,6 +18,16 @@ public class MemberDto {
     public MemberDto(Member member) {
         this.id = member.getId();
         this.username = member.getUsername();
-        this.teamName = member.getTeam().getName();
+        this.teamName = member.getTeam() != null ? member.getTeam().getName() : null;
+    }
+
+    public MemberDto(MemberView view) {
+        this.id = view.getId();
+        this.username = view.getUsername();
+        this.teamName = view.getTeamName();
+    }
+
+    public MemberDto copy() {
+        return new MemberDto(id, username, teamName);
     }
 }
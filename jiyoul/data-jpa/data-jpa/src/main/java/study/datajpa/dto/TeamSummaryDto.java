@@ -0,0 +1,16 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+
+@Data
+public class TeamSummaryDto {
+    private Long id;
+    private String name;
+    private long memberCount;
+
+    public TeamSummaryDto(Long id, String name, long memberCount) {
+        this.id = id;
+        this.name = name;
+        this.memberCount = memberCount;
+    }
+}
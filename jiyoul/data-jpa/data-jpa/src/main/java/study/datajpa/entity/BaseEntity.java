@@ -8,6 +8,7 @@ import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.EntityListeners;
 import javax.persistence.MappedSuperclass;
 import java.time.LocalDateTime;
@@ -17,10 +18,14 @@ import java.time.LocalDateTime;
 @Getter
 public class BaseEntity extends BaseTimeEntity {
 
+    // AuditorAware 가 UUID 문자열을 주므로 36자 문자열 대신 16바이트로 저장한다.
     @CreatedBy
-    @Column(updatable = false)
+    @Convert(converter = UuidBinaryConverter.class)
+    @Column(updatable = false, columnDefinition = "binary(16)")
     private String createdBy;
 
     @LastModifiedBy
+    @Convert(converter = UuidBinaryConverter.class)
+    @Column(columnDefinition = "binary(16)")
     private String lastModifiedBy;
 }
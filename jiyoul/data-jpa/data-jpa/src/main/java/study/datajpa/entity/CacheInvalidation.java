@@ -0,0 +1,37 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * JdbcInvalidationBus 가 노드 간에 주고받는 캐시 무효화 묶음. payload 는 Invalidation 의 JSON 이다.
+ * 모든 노드가 모든 행을 읽으므로 발행 여부를 표시하지 않고 보존 기간이 지나면 지운다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+@Table(name = "cache_invalidation", indexes = @Index(name = "idx_cache_invalidation_created_date", columnList = "createdDate"))
+public class CacheInvalidation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "cache_invalidation_id")
+    private Long id;
+    private String origin;
+    @Lob
+    private String payload;
+    private LocalDateTime createdDate;
+}
@@ -1,11 +1,21 @@
 package study.datajpa.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.LazyToOne;
+import org.hibernate.annotations.LazyToOneOption;
+import org.hibernate.annotations.Parameter;
 import org.springframework.stereotype.Service;
 
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_age", columnList = "age"),
+        @Index(name = "idx_member_created_date", columnList = "createdDate")
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
@@ -14,12 +24,22 @@ import javax.persistence.*;
 public class Member extends BaseEntity {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "member_id")
+    @GenericGenerator(name = "member_id", strategy = "study.datajpa.id.PooledSequenceGenerator",
+            parameters = @Parameter(name = "sequence_name", value = "member_seq"))
     @Column(name = "member_id")
     private Long id;
     private String username;
     private int age;
+    // MemberAgeWriteBehind 가 JDBC 로 age 를 더할 때도 올린다. 그 전에 읽은 엔티티를 저장하면 덮어쓰지 않고 낙관적 락 예외가 난다.
+    // JDBC 로 version 없이 넣은 행도 읽을 수 있도록 기본값을 둔다.
+    @Version
+    @Setter(AccessLevel.NONE)
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long version;
+    // 바이트코드 향상 시 프록시 대신 필드 접근 시점에 로딩한다. 향상 없이 실행하면 무시되고 프록시를 쓴다.
     @ManyToOne(fetch = FetchType.LAZY)
+    @LazyToOne(LazyToOneOption.NO_PROXY)
     @JoinColumn(name = "team_id")
     private Team team;
     public Member(String username) {
@@ -37,7 +57,10 @@ public class Member extends BaseEntity {
     }
     public void changeTeam(Team team) {
         this.team = team;
-        team.getMembers().add(this);
+        // 바이트코드 향상(association management)이 켜져 있으면 위 대입에서 이미 추가된다. 초기화 안 된 컬렉션은 contains 로 로딩하지 않는다.
+        if (!Hibernate.isInitialized(team.getMembers()) || !team.getMembers().contains(this)) {
+            team.getMembers().add(this);
+        }
     }
 
 }
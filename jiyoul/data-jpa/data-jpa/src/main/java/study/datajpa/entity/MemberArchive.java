@@ -0,0 +1,48 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * createdDate 기준으로 오래된 회원을 옮겨두는 보관 테이블. MemberArchiver 가 JDBC 로만 쓴다.
+ * 원래 member_id 를 그대로 유지하므로 member 와 union 해도 id 가 겹치지 않는다.
+ */
+@Entity
+@Immutable
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString(of = {"id", "username", "age", "archivedDate"})
+@Table(name = "member_archive", indexes = {
+        @Index(name = "idx_member_archive_username", columnList = "username"),
+        @Index(name = "idx_member_archive_created_date", columnList = "createdDate")
+})
+public class MemberArchive {
+
+    @Id
+    @Column(name = "member_id")
+    private Long id;
+    private String username;
+    private int age;
+    @Column(name = "team_id")
+    private Long teamId;
+    private LocalDateTime createdDate;
+    private LocalDateTime lastModifiedDate;
+    @Convert(converter = UuidBinaryConverter.class)
+    @Column(columnDefinition = "binary(16)")
+    private String createdBy;
+    @Convert(converter = UuidBinaryConverter.class)
+    @Column(columnDefinition = "binary(16)")
+    private String lastModifiedBy;
+    private LocalDateTime archivedDate;
+}
@@ -0,0 +1,39 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * 회원 목록 조회용 비정규화 읽기 모델. MemberViewProjector 가 Member/Team 쓰기에 맞춰 갱신한다.
+ */
+@Entity
+@Immutable
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+@Table(name = "member_view", indexes = {
+        @Index(name = "idx_member_view_username", columnList = "username"),
+        @Index(name = "idx_member_view_team_name", columnList = "team_name"),
+        @Index(name = "idx_member_view_team_id", columnList = "team_id")
+})
+public class MemberView {
+
+    @Id
+    @Column(name = "member_id")
+    private Long id;
+    private String username;
+    private int age;
+    @Column(name = "team_id")
+    private Long teamId;
+    @Column(name = "team_name")
+    private String teamName;
+}
@@ -0,0 +1,49 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Member/Team/Item 변경 기록. 엔티티 쓰기와 같은 트랜잭션에서 JDBC 로 적재되고 OutboxRelay 가 발행한다.
+ * aggregateId 가 null 이면 벌크 연산처럼 여러 행에 걸친 범위 이벤트다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+@Table(name = "outbox_event", indexes = @Index(name = "idx_outbox_event_published", columnList = "published, outbox_event_id"))
+public class OutboxEvent {
+
+    public static final String INSERT = "INSERT";
+    public static final String UPDATE = "UPDATE";
+    public static final String DELETE = "DELETE";
+    public static final String BULK = "BULK";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "outbox_event_id")
+    private Long id;
+    private String aggregateType;
+    private String aggregateId;
+    private String eventType;
+    @Column(length = 4000)
+    private String payload;
+    private LocalDateTime createdDate;
+    private boolean published;
+    private int attempts;
+
+    public boolean isRange() {
+        return aggregateId == null;
+    }
+}
@@ -0,0 +1,28 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * OutboxRelay 를 실행할 노드. 한 번에 한 노드만 leaseUntil 까지 outbox_event 를 발행한다.
+ * 여러 노드가 같은 미발행 이벤트를 나눠 가지면 같은 aggregate 의 이벤트 순서가 어긋나므로 행 단위가 아니라 relay 단위로 잡는다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+@Table(name = "outbox_relay_lease")
+public class OutboxRelayLease {
+
+    @Id
+    private String name;
+    private String owner;
+    private LocalDateTime leaseUntil;
+}
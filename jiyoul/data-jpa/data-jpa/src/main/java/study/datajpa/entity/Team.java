@@ -1,23 +1,35 @@
 package study.datajpa.entity;
 
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_team_name", columnList = "name"))
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
+@BatchSize(size = 100) // Member.team 프록시 초기화 시 같은 영속성 컨텍스트의 팀 프록시를 IN 쿼리로 함께 로딩
 public class Team extends BaseEntity{
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "team_id")
+    @GenericGenerator(name = "team_id", strategy = "study.datajpa.id.PooledSequenceGenerator",
+            parameters = @Parameter(name = "sequence_name", value = "team_seq"))
     @Column(name = "team_id")
     private Long id;
     private String name;
+    // TeamMemberCountUpdater 가 member_count = member_count + ? 로만 갱신한다. 엔티티 값은 로딩 시점의 값이고 changeTeam 으로 바뀌지 않는다.
+    @Column(updatable = false)
+    @Setter(AccessLevel.NONE)
+    private long memberCount;
     @OneToMany(mappedBy = "team")
+    @BatchSize(size = 100)
     List<Member> members = new ArrayList<>();
 
     public Team(String name) {
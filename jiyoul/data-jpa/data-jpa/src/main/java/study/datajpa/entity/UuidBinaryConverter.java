@@ -0,0 +1,38 @@
+package study.datajpa.entity;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * UUID 문자열(36자)을 16바이트 binary 로 저장한다. 엔티티 필드는 그대로 String 이다.
+ * UUID 형식이 아닌 값은 저장할 수 없다.
+ */
+@Converter
+public class UuidBinaryConverter implements AttributeConverter<String, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(String attribute) {
+        if (attribute == null) {
+            return null;
+        }
+        UUID uuid = UUID.fromString(attribute);
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] dbData) {
+        if (dbData == null) {
+            return null;
+        }
+        if (dbData.length != 16) {
+            throw new IllegalArgumentException("binary uuid must be 16 bytes: " + dbData.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(dbData);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+}
@@ -0,0 +1,70 @@
+package study.datajpa.id;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * DB 왕복 없이 노드 안에서 만드는 시간순 64비트 id.
+ * [부호 1][EPOCH 이후 ms 41][노드 10][같은 ms 안의 순번 12] 로 구성되며 한 노드 안에서는 단조 증가한다.
+ * 같은 ms 에 순번(4096)을 다 쓰거나 시계가 조금 뒤로 가면 이전 시각을 이어서 사용하고,
+ * 시계가 MAX_BACKWARD_MILLIS 보다 많이 뒤로 가면 중복을 막기 위해 예외를 던진다.
+ * 2^53 을 넘으므로 JSON 으로 내보낼 때 JavaScript 숫자 정밀도에 주의한다.
+ */
+public class TimeOrderedIdGenerator {
+
+    static final long EPOCH = Instant.parse("2022-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    static final long MAX_BACKWARD_MILLIS = 1_000;
+
+    private final long node;
+    private final LongSupplier clock;
+    // (EPOCH 이후 ms << SEQUENCE_BITS) | 순번
+    private final AtomicLong last = new AtomicLong();
+
+    public TimeOrderedIdGenerator(long node) {
+        this(node, System::currentTimeMillis);
+    }
+
+    TimeOrderedIdGenerator(long node, LongSupplier clock) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("node id must be between 0 and " + MAX_NODE + ": " + node);
+        }
+        this.node = node;
+        this.clock = clock;
+    }
+
+    public long nextId() {
+        while (true) {
+            long previous = last.get();
+            long previousMillis = previous >>> SEQUENCE_BITS;
+            long now = clock.getAsLong() - EPOCH;
+
+            long next;
+            if (now > previousMillis) {
+                next = now << SEQUENCE_BITS;
+            } else if (previousMillis - now <= MAX_BACKWARD_MILLIS) {
+                next = previous + 1; // 순번이 넘치면 다음 ms 로 넘어간다
+            } else {
+                throw new IllegalStateException("clock moved backwards by " + (previousMillis - now) + "ms");
+            }
+
+            if (last.compareAndSet(previous, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                long sequence = next & SEQUENCE_MASK;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    public static long nodeOf(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_NODE;
+    }
+}
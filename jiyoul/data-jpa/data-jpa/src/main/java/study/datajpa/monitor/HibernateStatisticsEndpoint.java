@@ -0,0 +1,151 @@
+package study.datajpa.monitor;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.CollectionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * /actuator/hibernate - Hibernate Statistics 와 요청별 영속성 컨텍스트 크기.
+ * app.hibernate.statistics(hibernate.generate_statistics)가 켜져 있어야 값이 쌓인다. 기본은 꺼져 있다.
+ */
+@Component
+@Endpoint(id = "hibernate")
+public class HibernateStatisticsEndpoint {
+
+    private final Statistics statistics;
+    private final PersistenceContextSizeInterceptor persistenceContextSizes;
+
+    public HibernateStatisticsEndpoint(EntityManagerFactory emf, PersistenceContextSizeInterceptor persistenceContextSizes) {
+        this.statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        this.persistenceContextSizes = persistenceContextSizes;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        result.put("sessions", session());
+        result.put("entities", entities());
+        result.put("collections", collections());
+        result.put("queries", queries());
+        result.put("secondLevelCache", secondLevelCache());
+        result.put("persistenceContext", persistenceContextSizes.snapshot());
+        return result;
+    }
+
+    @DeleteOperation
+    public void clear() {
+        statistics.clear();
+        persistenceContextSizes.clear();
+    }
+
+    private Map<String, Object> session() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("opened", statistics.getSessionOpenCount());
+        map.put("closed", statistics.getSessionCloseCount());
+        map.put("flushes", statistics.getFlushCount());
+        map.put("transactions", statistics.getTransactionCount());
+        map.put("preparedStatements", statistics.getPrepareStatementCount());
+        return map;
+    }
+
+    private Map<String, Object> entities() {
+        Map<String, Object> perEntity = new TreeMap<>();
+        for (String entityName : statistics.getEntityNames()) {
+            EntityStatistics entity = statistics.getEntityStatistics(entityName);
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("loads", entity.getLoadCount());
+            map.put("fetches", entity.getFetchCount());
+            map.put("inserts", entity.getInsertCount());
+            map.put("updates", entity.getUpdateCount());
+            map.put("deletes", entity.getDeleteCount());
+            perEntity.put(entityName, map);
+        }
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("loads", statistics.getEntityLoadCount());
+        map.put("fetches", statistics.getEntityFetchCount());
+        map.put("inserts", statistics.getEntityInsertCount());
+        map.put("updates", statistics.getEntityUpdateCount());
+        map.put("deletes", statistics.getEntityDeleteCount());
+        map.put("perEntity", perEntity);
+        return map;
+    }
+
+    private Map<String, Object> collections() {
+        Map<String, Object> perRole = new TreeMap<>();
+        for (String role : statistics.getCollectionRoleNames()) {
+            CollectionStatistics collection = statistics.getCollectionStatistics(role);
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("loads", collection.getLoadCount());
+            map.put("fetches", collection.getFetchCount());
+            map.put("updates", collection.getUpdateCount());
+            map.put("recreates", collection.getRecreateCount());
+            map.put("removes", collection.getRemoveCount());
+            perRole.put(role, map);
+        }
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("loads", statistics.getCollectionLoadCount());
+        map.put("fetches", statistics.getCollectionFetchCount());
+        map.put("perRole", perRole);
+        return map;
+    }
+
+    private Map<String, Object> queries() {
+        Map<String, Object> perQuery = new TreeMap<>();
+        for (String query : statistics.getQueries()) {
+            QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("executions", queryStatistics.getExecutionCount());
+            map.put("rows", queryStatistics.getExecutionRowCount());
+            map.put("maxTimeMs", queryStatistics.getExecutionMaxTime());
+            map.put("avgTimeMs", queryStatistics.getExecutionAvgTime());
+            map.put("minTimeMs", queryStatistics.getExecutionMinTime());
+            map.put("cacheHits", queryStatistics.getCacheHitCount());
+            map.put("cacheMisses", queryStatistics.getCacheMissCount());
+            perQuery.put(query, map);
+        }
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("executions", statistics.getQueryExecutionCount());
+        map.put("maxTimeMs", statistics.getQueryExecutionMaxTime());
+        map.put("slowest", statistics.getQueryExecutionMaxTimeQueryString());
+        map.put("perQuery", perQuery);
+        return map;
+    }
+
+    private Map<String, Object> secondLevelCache() {
+        Map<String, Object> perRegion = new TreeMap<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("hits", regionStatistics.getHitCount());
+            map.put("misses", regionStatistics.getMissCount());
+            map.put("puts", regionStatistics.getPutCount());
+            map.put("elementsInMemory", regionStatistics.getElementCountInMemory());
+            perRegion.put(region, map);
+        }
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("hits", statistics.getSecondLevelCacheHitCount());
+        map.put("misses", statistics.getSecondLevelCacheMissCount());
+        map.put("puts", statistics.getSecondLevelCachePutCount());
+        map.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        map.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+        map.put("perRegion", perRegion);
+        return map;
+    }
+}
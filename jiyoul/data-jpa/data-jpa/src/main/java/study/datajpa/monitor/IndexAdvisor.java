@@ -0,0 +1,196 @@
+package study.datajpa.monitor;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 실행되는 SQL 의 WHERE 절에서 테이블별 조건 컬럼 조합을 모아 인덱스를 추천한다.
+ * Hibernate StatementInspector 로 등록되며 SQL 은 변경하지 않는다.
+ */
+@Component
+public class IndexAdvisor implements StatementInspector {
+
+    private static final Pattern UPDATE_TABLE = Pattern.compile("^\\s*update\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TABLE_ALIAS = Pattern.compile("\\b(?:from|join)\\s+(\\w+)(?:\\s+(?:as\\s+)?(\\w+))?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WHERE_CLAUSE = Pattern.compile("\\bwhere\\b(.*?)(?:\\border\\s+by\\b|\\bgroup\\s+by\\b|\\blimit\\b|\\boffset\\b|\\bfetch\\b|\\bfor\\s+update\\b|$)",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern PREDICATE = Pattern.compile("(?:(\\w+)\\.)?(\\w+)\\s*(>=|<=|<>|!=|=|>|<|\\blike\\b|\\bin\\b|\\bbetween\\b|\\bis\\b)",
+            Pattern.CASE_INSENSITIVE);
+    private static final Set<String> KEYWORDS = Set.of("where", "left", "right", "inner", "outer", "cross", "full", "join", "on",
+            "order", "group", "limit", "offset", "fetch", "for", "set", "and", "or", "not", "union");
+    private static final int MAX_PARSED_STATEMENTS = 1000;
+
+    private final Map<String, List<PredicateShape>> parsedStatements = new ConcurrentHashMap<>();
+    private final Map<PredicateShape, LongAdder> executions = new ConcurrentHashMap<>();
+
+    @Override
+    public String inspect(String sql) {
+        List<PredicateShape> shapes = parsedStatements.get(sql);
+        if (shapes == null) {
+            shapes = parse(sql);
+            if (parsedStatements.size() < MAX_PARSED_STATEMENTS) {
+                parsedStatements.put(sql, shapes);
+            }
+        }
+        for (PredicateShape shape : shapes) {
+            executions.computeIfAbsent(shape, k -> new LongAdder()).increment();
+        }
+        return sql;
+    }
+
+    /**
+     * @param existingIndexes 테이블별 이미 존재하는 인덱스 컬럼 목록 (소문자)
+     */
+    public List<IndexRecommendation> recommend(Map<String, List<List<String>>> existingIndexes, long minExecutions) {
+        Map<List<String>, IndexRecommendation> recommendations = new HashMap<>();
+        executions.forEach((shape, count) -> {
+            long executed = count.sum();
+            List<String> columns = shape.indexColumns();
+            if (executed < minExecutions || columns.isEmpty()
+                    || isCovered(columns, shape.getEqualityColumns().size(), existingIndexes.getOrDefault(shape.getTable(), Collections.emptyList()))) {
+                return;
+            }
+
+            List<String> key = new ArrayList<>(columns);
+            key.add(0, shape.getTable());
+            recommendations.merge(key, new IndexRecommendation(shape.getTable(), columns, executed),
+                    (a, b) -> new IndexRecommendation(a.getTable(), a.getColumns(), a.getExecutions() + b.getExecutions()));
+        });
+
+        List<IndexRecommendation> result = new ArrayList<>(recommendations.values());
+        result.sort(Comparator.comparingLong(IndexRecommendation::getExecutions).reversed());
+        return result;
+    }
+
+    public Map<String, Long> predicateShapes() {
+        Map<String, Long> result = new HashMap<>();
+        executions.forEach((shape, count) -> result.put(shape.toString(), count.sum()));
+        return result;
+    }
+
+    public void clear() {
+        executions.clear();
+    }
+
+    static List<PredicateShape> parse(String sql) {
+        Matcher where = WHERE_CLAUSE.matcher(sql);
+        if (!where.find()) {
+            return Collections.emptyList();
+        }
+
+        Map<String, String> aliases = new HashMap<>();
+        String defaultTable = null;
+        Matcher update = UPDATE_TABLE.matcher(sql);
+        if (update.find()) {
+            defaultTable = update.group(1).toLowerCase(Locale.ROOT);
+            aliases.put(defaultTable, defaultTable);
+        }
+        Matcher tables = TABLE_ALIAS.matcher(sql);
+        while (tables.find()) {
+            String table = tables.group(1).toLowerCase(Locale.ROOT);
+            String alias = tables.group(2);
+            if (KEYWORDS.contains(table)) {
+                continue;
+            }
+            aliases.put(table, table);
+            if (alias != null && !KEYWORDS.contains(alias.toLowerCase(Locale.ROOT))) {
+                aliases.put(alias.toLowerCase(Locale.ROOT), table);
+            }
+            if (defaultTable == null) {
+                defaultTable = table;
+            }
+        }
+
+        Map<String, PredicateShape> shapes = new HashMap<>();
+        Matcher predicate = PREDICATE.matcher(where.group(1));
+        while (predicate.find()) {
+            String qualifier = predicate.group(1);
+            String column = predicate.group(2).toLowerCase(Locale.ROOT);
+            String operator = predicate.group(3).toLowerCase(Locale.ROOT);
+            if (KEYWORDS.contains(column)) {
+                continue;
+            }
+            String table = qualifier == null ? defaultTable : aliases.get(qualifier.toLowerCase(Locale.ROOT));
+            if (table == null) {
+                continue;
+            }
+
+            PredicateShape shape = shapes.computeIfAbsent(table, PredicateShape::new);
+            if (operator.equals("=") || operator.equals("in") || operator.equals("is")) {
+                shape.equalityColumns.add(column);
+            } else {
+                shape.rangeColumns.add(column);
+            }
+        }
+        return new ArrayList<>(shapes.values());
+    }
+
+    // 동등 조건 컬럼들이 기존 인덱스의 앞부분을 모두 차지하고, 범위 컬럼이 그 바로 뒤에 오면 이미 커버된다.
+    private static boolean isCovered(List<String> columns, int equalityCount, List<List<String>> indexes) {
+        for (List<String> index : indexes) {
+            if (index.size() < columns.size()) {
+                continue;
+            }
+            Set<String> prefix = new TreeSet<>(index.subList(0, equalityCount));
+            if (prefix.equals(new TreeSet<>(columns.subList(0, equalityCount)))
+                    && index.subList(equalityCount, columns.size()).equals(columns.subList(equalityCount, columns.size()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    static class PredicateShape {
+        private final String table;
+        private final Set<String> equalityColumns = new TreeSet<>();
+        private final Set<String> rangeColumns = new TreeSet<>();
+
+        // 동등 조건 컬럼을 앞에, 범위 조건 컬럼은 하나만 뒤에 둔다.
+        List<String> indexColumns() {
+            List<String> columns = new ArrayList<>(equalityColumns);
+            rangeColumns.stream()
+                    .filter(column -> !equalityColumns.contains(column))
+                    .findFirst()
+                    .ifPresent(columns::add);
+            return columns;
+        }
+
+        @Override
+        public String toString() {
+            return table + " eq" + equalityColumns + " range" + rangeColumns;
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class IndexRecommendation {
+        private final String table;
+        private final List<String> columns;
+        private final long executions;
+
+        public String getDdl() {
+            return "create index idx_" + table + "_" + String.join("_", columns)
+                    + " on " + table + " (" + String.join(", ", columns) + ")";
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package study.datajpa.monitor;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * /actuator/indexadvisor - 관측된 조건 컬럼 조합과 기존 인덱스(@Table(indexes), PK)로 커버되지 않는 인덱스 추천.
+ * 기존 인덱스의 컬럼은 SQL 과 비교할 수 있도록 물리 컬럼명으로 보고한다.
+ */
+@Component
+@Endpoint(id = "indexadvisor")
+@RequiredArgsConstructor
+public class IndexAdvisorEndpoint {
+
+    private final IndexAdvisor indexAdvisor;
+    private final EntityManagerFactory emf;
+
+    @ReadOperation
+    public Map<String, Object> advise(@Nullable Long minExecutions) {
+        Map<String, List<List<String>>> existingIndexes = existingIndexes();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("existingIndexes", existingIndexes);
+        result.put("predicates", indexAdvisor.predicateShapes());
+        result.put("recommendations", indexAdvisor.recommend(existingIndexes, minExecutions == null ? 10 : minExecutions));
+        return result;
+    }
+
+    @DeleteOperation
+    public void clear() {
+        indexAdvisor.clear();
+    }
+
+    private Map<String, List<List<String>>> existingIndexes() {
+        Map<String, List<List<String>>> indexes = new HashMap<>();
+        for (EntityPersister persister : emf.unwrap(SessionFactoryImplementor.class).getMetamodel().entityPersisters().values()) {
+            if (!(persister instanceof AbstractEntityPersister)) {
+                continue;
+            }
+            AbstractEntityPersister entityPersister = (AbstractEntityPersister) persister;
+            List<List<String>> tableIndexes = indexes.computeIfAbsent(entityPersister.getTableName().toLowerCase(Locale.ROOT), k -> new ArrayList<>());
+            tableIndexes.add(lowerCase(Arrays.asList(entityPersister.getIdentifierColumnNames())));
+
+            Class<?> mappedClass = entityPersister.getMappedClass();
+            Table table = mappedClass.getAnnotation(Table.class);
+            if (table == null) {
+                continue;
+            }
+            for (Index index : table.indexes()) {
+                tableIndexes.add(lowerCase(columnNames(entityPersister, index.columnList().split(","))));
+            }
+        }
+        return indexes;
+    }
+
+    // columnList 는 논리 이름(createdDate)으로 적으므로, 속성 이름이면 SQL 에 나오는 물리 컬럼명(created_date)으로 바꾼다.
+    private static List<String> columnNames(AbstractEntityPersister persister, String[] columnList) {
+        List<String> columns = new ArrayList<>();
+        for (String column : columnList) {
+            String name = column.trim();
+            if (Arrays.asList(persister.getPropertyNames()).contains(name)) {
+                columns.addAll(Arrays.asList(persister.getPropertyColumnNames(name)));
+            } else {
+                columns.add(name);
+            }
+        }
+        return columns;
+    }
+
+    private static List<String> lowerCase(List<String> columns) {
+        return columns.stream()
+                .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,95 @@
+package study.datajpa.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 요청이 끝날 때 OSIV 로 열려있는 영속성 컨텍스트의 엔티티 수를 핸들러 패턴별로 기록한다.
+ * afterCompletion 에서는 이미 EntityManager 가 닫혔을 수 있으므로 postHandle 에서 측정한다.
+ * 엔티티 수가 warn-entities 이상이면 경고를 남긴다(0 이면 끈다).
+ */
+@Slf4j
+@Component
+public class PersistenceContextSizeInterceptor implements HandlerInterceptor {
+
+    private final EntityManagerFactory emf;
+    private final int warnEntities;
+    private final Map<String, PersistenceContextSize> sizes = new ConcurrentHashMap<>();
+
+    public PersistenceContextSizeInterceptor(EntityManagerFactory emf,
+                                             @Value("${app.persistence-context.warn-entities:1000}") int warnEntities) {
+        this.emf = emf;
+        this.warnEntities = warnEntities;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(emf);
+        if (holder == null || !holder.getEntityManager().isOpen()) {
+            return;
+        }
+
+        int entityCount = holder.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount();
+        String key = handlerKey(request);
+        sizes.computeIfAbsent(key, k -> new PersistenceContextSize()).record(entityCount);
+        if (warnEntities > 0 && entityCount >= warnEntities) {
+            log.warn("{} left {} entities in the persistence context (warn-entities={})", key, entityCount, warnEntities);
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new TreeMap<>();
+        sizes.forEach((key, size) -> result.put(key, size.toMap()));
+        return result;
+    }
+
+    public void clear() {
+        sizes.clear();
+    }
+
+    private String handlerKey(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    }
+
+    static class PersistenceContextSize {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder totalEntities = new LongAdder();
+        private final LongAccumulator maxEntities = new LongAccumulator(Math::max, 0);
+        private volatile int lastEntities;
+
+        void record(int entityCount) {
+            requests.increment();
+            totalEntities.add(entityCount);
+            maxEntities.accumulate(entityCount);
+            lastEntities = entityCount;
+        }
+
+        Map<String, Object> toMap() {
+            long count = requests.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("requests", count);
+            map.put("maxEntities", maxEntities.get());
+            map.put("avgEntities", count == 0 ? 0 : totalEntities.sum() / count);
+            map.put("lastEntities", lastEntities);
+            return map;
+        }
+    }
+}
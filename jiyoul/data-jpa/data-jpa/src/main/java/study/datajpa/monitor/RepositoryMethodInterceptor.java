@@ -0,0 +1,38 @@
+package study.datajpa.monitor;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * 실행 중인 리포지토리 메서드("MemberRepository.findByAge")를 스레드에 남긴다.
+ * 파생 쿼리는 호출 스택에 리포지토리 인터페이스가 보이지 않으므로 SlowQueryLog 가 이 값으로 어느 메서드의 SQL 인지 기록한다.
+ */
+public class RepositoryMethodInterceptor implements MethodInterceptor {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private final String repositoryName;
+
+    public RepositoryMethodInterceptor(Class<?> repositoryInterface) {
+        this.repositoryName = repositoryInterface.getSimpleName();
+    }
+
+    public static String currentMethod() {
+        return CURRENT.get();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String previous = CURRENT.get();
+        CURRENT.set(repositoryName + "." + invocation.getMethod().getName());
+        try {
+            return invocation.proceed();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
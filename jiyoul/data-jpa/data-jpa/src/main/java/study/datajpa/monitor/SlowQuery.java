@@ -0,0 +1,25 @@
+package study.datajpa.monitor;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * SlowQueryLog 에 남은 느린 SQL 한 건. plan 은 EXPLAIN 결과이고 EXPLAIN 대상이 아니면 null, 실패하면 planError 에 이유가 남는다.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class SlowQuery {
+
+    private final LocalDateTime executedAt;
+    private final long elapsedMillis;
+    private final String repositoryMethod;
+    private final String origin;
+    private final String sql;
+    private final String params;
+    private final String plan;
+    private final String planError;
+}
@@ -0,0 +1,44 @@
+package study.datajpa.monitor;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/slowqueries - 느린 SQL 과 실행 계획. ?repository=MemberRepository.findByAge&limit=20 으로 거른다.
+ * POST {"thresholdMs": 20} 으로 재시작 없이 기준을 바꾼다.
+ */
+@Component
+@Endpoint(id = "slowqueries")
+@RequiredArgsConstructor
+public class SlowQueryEndpoint {
+
+    private static final int DEFAULT_LIMIT = 50;
+
+    private final SlowQueryLog slowQueryLog;
+
+    @ReadOperation
+    public Map<String, Object> slowQueries(@Nullable String repository, @Nullable Integer limit) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("thresholdMs", slowQueryLog.getThresholdMillis());
+        result.put("records", slowQueryLog.records(repository, limit == null ? DEFAULT_LIMIT : limit));
+        return result;
+    }
+
+    @WriteOperation
+    public void threshold(long thresholdMs) {
+        slowQueryLog.setThresholdMillis(thresholdMs);
+    }
+
+    @DeleteOperation
+    public void clear() {
+        slowQueryLog.clear();
+    }
+}
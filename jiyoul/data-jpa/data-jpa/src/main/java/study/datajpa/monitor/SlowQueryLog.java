@@ -0,0 +1,187 @@
+package study.datajpa.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.InvocationTargetException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * threshold-ms 이상 걸린 SQL 을 바인딩 값, 리포지토리 메서드, 실행 계획과 함께 최근 max-records 건까지 보관한다.
+ * EXPLAIN 은 같은 바인딩 값으로 별도 스레드에서 실행하므로 느린 요청을 더 느리게 만들지 않는다.
+ * EXPLAIN 대기열이 가득 차면 계획 없이 기록한다.
+ * 바인딩 값은 EXPLAIN 에만 쓰고, include-params 를 켜지 않으면 기록에는 ? 로 남긴다.
+ *
+ * DataSource 를 감싸는 도중에 만들어지는 빈이라 JdbcTemplate 은 EXPLAIN 시점에 ObjectProvider 로 꺼낸다.
+ */
+@Slf4j
+@Component
+public class SlowQueryLog implements QueryExecutionListener, DisposableBean {
+
+    private static final Pattern EXPLAINABLE = Pattern.compile("\\s*(select|with|update|delete)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern EXPLAIN = Pattern.compile("\\s*explain\\b", Pattern.CASE_INSENSITIVE);
+    private static final int MAX_PENDING_EXPLAINS = 100;
+
+    private final ObjectProvider<JdbcTemplate> jdbcTemplate;
+    private final int maxRecords;
+    private final boolean explain;
+    private final boolean includeParams;
+    private final Deque<SlowQuery> records = new ArrayDeque<>();
+    private final ThreadPoolExecutor explainExecutor;
+    private volatile long thresholdMillis;
+
+    public SlowQueryLog(ObjectProvider<JdbcTemplate> jdbcTemplate,
+                        @Value("${app.slow-query.threshold-ms:100}") long thresholdMillis,
+                        @Value("${app.slow-query.max-records:200}") int maxRecords,
+                        @Value("${app.slow-query.explain:true}") boolean explain,
+                        @Value("${app.slow-query.include-params:false}") boolean includeParams) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.thresholdMillis = thresholdMillis;
+        this.maxRecords = maxRecords;
+        this.explain = explain;
+        this.includeParams = includeParams;
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_PENDING_EXPLAINS), r -> {
+            Thread thread = new Thread(r, "slow-query-explain");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long elapsed = execInfo.getElapsedTime();
+        if (elapsed < thresholdMillis || queryInfoList.isEmpty()) {
+            return;
+        }
+        String sql = queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining(";\n"));
+        if (EXPLAIN.matcher(sql).lookingAt()) {
+            return; // 이 클래스가 실행한 EXPLAIN
+        }
+
+        LocalDateTime executedAt = LocalDateTime.now();
+        String repositoryMethod = RepositoryMethodInterceptor.currentMethod();
+        String origin = SqlSampler.origin();
+        String params = SqlSampler.params(queryInfoList, includeParams);
+        if (!explain || queryInfoList.size() != 1 || !EXPLAINABLE.matcher(sql).lookingAt()) {
+            add(new SlowQuery(executedAt, elapsed, repositoryMethod, origin, sql, params, null, null));
+            return;
+        }
+
+        // 배치 실행이면 첫 번째 바인딩 값으로 계획을 본다
+        List<List<ParameterSetOperation>> parametersList = queryInfoList.get(0).getParametersList();
+        List<ParameterSetOperation> binds = parametersList.isEmpty() ? List.of() : new ArrayList<>(parametersList.get(0));
+        try {
+            explainExecutor.execute(() -> add(explain(executedAt, elapsed, repositoryMethod, origin, sql, params, binds)));
+        } catch (RejectedExecutionException e) {
+            add(new SlowQuery(executedAt, elapsed, repositoryMethod, origin, sql, params, null, "explain queue full"));
+        }
+    }
+
+    /**
+     * 최근 기록부터 최대 limit 건. repositoryMethod 가 주어지면 그 문자열로 시작하는 기록만 반환한다("MemberRepository", "MemberRepository.findByAge").
+     */
+    public List<SlowQuery> records(String repositoryMethod, int limit) {
+        synchronized (records) {
+            return records.stream()
+                    .filter(record -> repositoryMethod == null
+                            || (record.getRepositoryMethod() != null && record.getRepositoryMethod().startsWith(repositoryMethod)))
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public void clear() {
+        synchronized (records) {
+            records.clear();
+        }
+    }
+
+    public long getThresholdMillis() {
+        return thresholdMillis;
+    }
+
+    public void setThresholdMillis(long thresholdMillis) {
+        this.thresholdMillis = thresholdMillis;
+    }
+
+    @Override
+    public void destroy() {
+        explainExecutor.shutdownNow();
+    }
+
+    // 이미 대기열에 들어간 EXPLAIN 이 끝날 때까지 기다린다
+    void awaitExplains() throws InterruptedException, ExecutionException, TimeoutException {
+        explainExecutor.submit(() -> { }).get(10, TimeUnit.SECONDS);
+    }
+
+    private SlowQuery explain(LocalDateTime executedAt, long elapsed, String repositoryMethod, String origin,
+                              String sql, String params, List<ParameterSetOperation> binds) {
+        try {
+            String plan = jdbcTemplate.getObject().query("explain " + sql, statement -> bind(statement, binds), rs -> {
+                StringBuilder sb = new StringBuilder();
+                while (rs.next()) {
+                    if (sb.length() > 0) {
+                        sb.append('\n');
+                    }
+                    sb.append(rs.getString(1));
+                }
+                return sb.toString();
+            });
+            return new SlowQuery(executedAt, elapsed, repositoryMethod, origin, sql, params, plan, null);
+        } catch (RuntimeException e) {
+            log.debug("explain failed: {}", sql, e);
+            return new SlowQuery(executedAt, elapsed, repositoryMethod, origin, sql, params, null, e.getMessage());
+        }
+    }
+
+    // 원래 문장에 호출된 setXxx 를 같은 인자로 다시 호출한다
+    private static void bind(PreparedStatement statement, List<ParameterSetOperation> binds) throws SQLException {
+        for (ParameterSetOperation operation : binds) {
+            try {
+                operation.getMethod().invoke(statement, operation.getArgs());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    private void add(SlowQuery record) {
+        synchronized (records) {
+            records.addFirst(record);
+            while (records.size() > maxRecords) {
+                records.removeLast();
+            }
+        }
+    }
+}
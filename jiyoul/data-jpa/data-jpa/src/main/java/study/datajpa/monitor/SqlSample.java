@@ -0,0 +1,24 @@
+package study.datajpa.monitor;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * SqlSampler 가 기록한 SQL 실행 한 건.
+ * params 는 바인딩 값을 실행 순서대로 문자열로 만든 것이고, 배치 실행이면 배치별로 [] 로 묶는다. include-params 가 꺼져 있으면 값은 ? 다.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class SqlSample {
+
+    private final long timestamp;
+    private final long elapsedMillis;
+    private final String sql;
+    private final String params;
+    private final String origin;
+    private final String thread;
+    private final boolean slow;
+    private final boolean success;
+}
@@ -0,0 +1,89 @@
+package study.datajpa.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 여러 쓰기 스레드, 하나의 drain 스레드를 위한 고정 크기 링 버퍼.
+ * 쓰기는 head 를 getAndIncrement 로 받아 슬롯에 덮어쓰기만 하므로 락도 대기도 없다.
+ * drain 이 따라가지 못하면 오래된 표본이 덮어써지고 dropped 로 센다.
+ */
+public class SqlSampleRingBuffer {
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long tail; // drain 스레드만 접근
+
+    public SqlSampleRingBuffer(int capacity) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public void offer(SqlSample sample) {
+        long sequence = head.getAndIncrement();
+        int index = (int) (sequence & mask);
+        Slot slot = new Slot(sequence, sample);
+        // 늦게 도착한 쓰기가 한 바퀴 뒤의 표본을 되돌리지 않도록 슬롯의 sequence 는 커지기만 한다
+        Slot current;
+        do {
+            current = slots.get(index);
+            if (current != null && current.sequence > sequence) {
+                return;
+            }
+        } while (!slots.compareAndSet(index, current, slot));
+    }
+
+    /**
+     * 아직 읽지 않은 표본을 순서대로 consumer 에 넘기고 넘긴 개수를 반환한다.
+     * sequence 를 받고 아직 슬롯에 쓰지 못한 쓰기가 있으면 거기서 멈추고 다음 drain 에서 이어간다.
+     */
+    public synchronized int drain(Consumer<SqlSample> consumer) {
+        long end = head.get();
+        if (end - tail > slots.length()) {
+            dropped.addAndGet(end - slots.length() - tail);
+            tail = end - slots.length();
+        }
+
+        int drained = 0;
+        while (tail < end) {
+            Slot slot = slots.get((int) (tail & mask));
+            if (slot == null || slot.sequence < tail) {
+                break;
+            }
+            if (slot.sequence == tail) {
+                consumer.accept(slot.sample);
+                drained++;
+            } else {
+                dropped.incrementAndGet(); // 읽기 전에 한 바퀴 뒤의 표본이 덮어썼다
+            }
+            tail++;
+        }
+        return drained;
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    public long offered() {
+        return head.get();
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    private static final class Slot {
+        private final long sequence;
+        private final SqlSample sample;
+
+        private Slot(long sequence, SqlSample sample) {
+            this.sequence = sequence;
+            this.sample = sample;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package study.datajpa.monitor;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 모든 SQL 을 동기로 로깅하는 대신 느린 문장과 일부 표본만 기록한다.
+ * datasource-proxy 의 QueryExecutionListener 로 등록되어 실행 스레드에서는 기록 여부만 판단하고
+ * 기록할 문장은 바인딩 값, 호출 위치와 함께 링 버퍼에 넣는다. 로그 출력은 drain() 이 별도 스레드에서 한다.
+ *
+ * - slow-threshold-ms 이상 걸린 문장은 항상 기록한다.
+ * - 나머지는 rate 확률로 기록한다. 0 이면 느린 문장만 남는다.
+ * - 바인딩 값에는 개인정보가 들어가므로 include-params 를 켜지 않으면 값 대신 ? 로 남긴다(null 은 그대로).
+ *
+ * DataSource 를 감싸는 도중에 만들어지는 빈이라 MeterRegistry 를 주입받으면 DataSource 메트릭 바인더와 순환이 생긴다.
+ * 그래서 MeterBinder 로 등록해 레지스트리가 준비된 뒤에 메트릭을 붙인다.
+ */
+@Slf4j
+@Component
+public class SqlSampler implements QueryExecutionListener, MeterBinder {
+
+    private static final int MAX_BATCH_ENTRIES = 10;
+    private static final int MAX_VALUE_LENGTH = 100;
+    private static final String OWN_PACKAGE = "study.datajpa.";
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private final double rate;
+    private final long slowThresholdMillis;
+    private final boolean includeParams;
+    private final SqlSampleRingBuffer buffer;
+    private final LongAdder slowCount = new LongAdder();
+    private final LongAdder sampledCount = new LongAdder();
+
+    public SqlSampler(@Value("${app.sql-sampling.rate:0.01}") double rate,
+                      @Value("${app.sql-sampling.slow-threshold-ms:100}") long slowThresholdMillis,
+                      @Value("${app.sql-sampling.buffer-size:4096}") int bufferSize,
+                      @Value("${app.sql-sampling.include-params:false}") boolean includeParams) {
+        this.rate = rate;
+        this.slowThresholdMillis = slowThresholdMillis;
+        this.includeParams = includeParams;
+        this.buffer = new SqlSampleRingBuffer(bufferSize);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sql.sampler.captured", slowCount, LongAdder::sum).tag("type", "slow").register(registry);
+        FunctionCounter.builder("sql.sampler.captured", sampledCount, LongAdder::sum).tag("type", "sampled").register(registry);
+        Gauge.builder("sql.sampler.dropped", buffer, SqlSampleRingBuffer::dropped).register(registry);
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long elapsed = execInfo.getElapsedTime();
+        boolean slow = elapsed >= slowThresholdMillis;
+        if (!slow && (rate <= 0 || ThreadLocalRandom.current().nextDouble() >= rate)) {
+            return;
+        }
+
+        (slow ? slowCount : sampledCount).increment();
+        buffer.offer(new SqlSample(System.currentTimeMillis(), elapsed, sql(queryInfoList), params(queryInfoList, includeParams),
+                origin(), Thread.currentThread().getName(), slow, execInfo.isSuccess()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.sql-sampling.drain-interval-ms:1000}")
+    public int drain() {
+        return buffer.drain(this::write);
+    }
+
+    public SqlSampleRingBuffer buffer() {
+        return buffer;
+    }
+
+    private void write(SqlSample sample) {
+        if (sample.isSlow()) {
+            log.warn("slow sql {}ms{} [{}] at {} params={}\n{}", sample.getElapsedMillis(), sample.isSuccess() ? "" : " (failed)",
+                    sample.getThread(), sample.getOrigin(), sample.getParams(), sample.getSql());
+        } else {
+            log.info("sampled sql {}ms [{}] at {} params={}\n{}", sample.getElapsedMillis(),
+                    sample.getThread(), sample.getOrigin(), sample.getParams(), sample.getSql());
+        }
+    }
+
+    private static String sql(List<QueryInfo> queryInfoList) {
+        if (queryInfoList.size() == 1) {
+            return queryInfoList.get(0).getQuery();
+        }
+        return queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining(";\n"));
+    }
+
+    static String params(List<QueryInfo> queryInfoList, boolean includeValues) {
+        StringBuilder sb = new StringBuilder();
+        for (QueryInfo queryInfo : queryInfoList) {
+            List<List<ParameterSetOperation>> parametersList = queryInfo.getParametersList();
+            int entries = Math.min(parametersList.size(), MAX_BATCH_ENTRIES);
+            for (int i = 0; i < entries; i++) {
+                sb.append('[');
+                appendValues(sb, parametersList.get(i), includeValues);
+                sb.append(']');
+            }
+            if (parametersList.size() > entries) {
+                sb.append("... (").append(parametersList.size()).append(" entries)");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendValues(StringBuilder sb, List<ParameterSetOperation> operations, boolean includeValues) {
+        for (int i = 0; i < operations.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            ParameterSetOperation operation = operations.get(i);
+            Object[] args = operation.getArgs();
+            if (ParameterSetOperation.isSetNullParameterOperation(operation) || args.length < 2 || args[1] == null) {
+                sb.append("null");
+                continue;
+            }
+            if (!includeValues) {
+                sb.append('?');
+                continue;
+            }
+            String value = String.valueOf(args[1]);
+            sb.append(value.length() > MAX_VALUE_LENGTH ? value.substring(0, MAX_VALUE_LENGTH) + "..." : value);
+        }
+    }
+
+    // 프록시와 Hibernate, datasource-proxy, 리스너와 리포지토리 어드바이스 프레임을 건너뛰고 처음 만나는 애플리케이션 코드 위치
+    static String origin() {
+        Optional<StackWalker.StackFrame> frame = STACK_WALKER.walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith(OWN_PACKAGE)
+                        && !QueryExecutionListener.class.isAssignableFrom(f.getDeclaringClass())
+                        && !MethodInterceptor.class.isAssignableFrom(f.getDeclaringClass()))
+                .findFirst());
+        return frame.map(f -> f.getClassName() + "." + f.getMethodName() + ":" + f.getLineNumber()).orElse("unknown");
+    }
+}
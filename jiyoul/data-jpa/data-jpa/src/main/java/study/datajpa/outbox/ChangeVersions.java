@@ -0,0 +1,98 @@
+package study.datajpa.outbox;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.cache.Invalidation;
+import study.datajpa.cache.InvalidationListener;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 애그리거트 타입별 변경 카운터. OutboxRecorder 가 기록하는 모든 변경마다 커밋 후에 증가한다.
+ * version 은 모든 변경, unauditedVersion 은 벌크/JDBC 변경처럼 lastModifiedDate 가 바뀌지 않는 변경만 센다.
+ * 카운터는 노드 메모리에만 있으므로 재기동을 구분하려면 epoch 와 함께 사용한다.
+ * 다른 노드의 변경은 CacheInvalidations 로 전달받아 올린다.
+ */
+@Component
+public class ChangeVersions implements InvalidationListener {
+
+    private final long epoch = System.currentTimeMillis();
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> unauditedVersions = new ConcurrentHashMap<>();
+
+    public long epoch() {
+        return epoch;
+    }
+
+    public long version(Class<?> aggregateType) {
+        return counter(versions, aggregateType.getSimpleName()).get();
+    }
+
+    public long unauditedVersion(Class<?> aggregateType) {
+        return counter(unauditedVersions, aggregateType.getSimpleName()).get();
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋되면 카운터를 올린다. 트랜잭션 밖이면 바로 올린다.
+     */
+    public void changed(String aggregateType, boolean audited) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment(aggregateType, audited);
+            return;
+        }
+        pendingChanges().add(aggregateType, audited);
+    }
+
+    // 묶음에는 lastModifiedDate 가 바뀐 변경인지가 없으므로(쓰기 지연 같은 JDBC 변경도 식별자로 온다) 모두 unaudited 로 센다.
+    @Override
+    public void invalidate(Invalidation invalidation) {
+        invalidation.aggregateTypes().forEach(type -> increment(type, false));
+    }
+
+    private void increment(String aggregateType, boolean audited) {
+        counter(versions, aggregateType).incrementAndGet();
+        if (!audited) {
+            counter(unauditedVersions, aggregateType).incrementAndGet();
+        }
+    }
+
+    // 트랜잭션마다 하나만 등록한다. REQUIRES_NEW 로 중단된 바깥 트랜잭션의 동기화는 목록에 보이지 않는다.
+    private PendingChanges pendingChanges() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges && ((PendingChanges) synchronization).owner() == this) {
+                return (PendingChanges) synchronization;
+            }
+        }
+        PendingChanges pending = new PendingChanges();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    private static AtomicLong counter(Map<String, AtomicLong> counters, String aggregateType) {
+        return counters.computeIfAbsent(aggregateType, k -> new AtomicLong());
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+        private final Set<String> audited = new HashSet<>();
+        private final Set<String> unaudited = new HashSet<>();
+
+        void add(String aggregateType, boolean isAudited) {
+            (isAudited ? audited : unaudited).add(aggregateType);
+        }
+
+        ChangeVersions owner() {
+            return ChangeVersions.this;
+        }
+
+        @Override
+        public void afterCommit() {
+            audited.forEach(type -> increment(type, true));
+            unaudited.forEach(type -> increment(type, false));
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package study.datajpa.outbox;
+
+import java.util.Map;
+
+/**
+ * JPA 를 거치지 않고 바꾼 행(쓰기 지연, 보관 처리, StatelessSession 쓰기 등)이 OutboxRecorder 로 기록되는 순간
+ * 같은 트랜잭션 안에서 호출된다. Hibernate 엔티티 이벤트로 유지하는 메모리 구조가 같은 변경을 커밋 전에 반영하는 용도다.
+ */
+public interface JdbcChangeListener {
+
+    void changeRecorded(String aggregateType, Object id, String eventType, Map<String, Object> payload);
+}
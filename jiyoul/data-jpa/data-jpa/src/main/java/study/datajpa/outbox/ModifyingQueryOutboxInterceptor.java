@@ -0,0 +1,37 @@
+package study.datajpa.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.jpa.repository.Modifying;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @Modifying 쿼리 메서드(bulkAgePlus 등)를 범위 이벤트로 기록한다.
+ * 리포지토리 프록시 안쪽(트랜잭션 인터셉터 뒤)에 붙으므로 벌크 연산과 같은 트랜잭션에서 기록된다.
+ */
+@RequiredArgsConstructor
+public class ModifyingQueryOutboxInterceptor implements MethodInterceptor {
+
+    private final Class<?> domainType;
+    private final OutboxRecorder outboxRecorder;
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        if (!AnnotatedElementUtils.hasAnnotation(invocation.getMethod(), Modifying.class)) {
+            return result;
+        }
+
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("method", invocation.getMethod().getName());
+        description.put("args", Arrays.asList(invocation.getArguments()));
+        description.put("rows", result);
+        outboxRecorder.recordRange(domainType, description);
+        return result;
+    }
+}
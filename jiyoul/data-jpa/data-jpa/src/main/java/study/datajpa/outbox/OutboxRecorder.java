@@ -0,0 +1,187 @@
+package study.datajpa.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.internal.ForeignKeys;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.cache.CacheInvalidations;
+import study.datajpa.config.HibernateEventListeners;
+import study.datajpa.entity.Item;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.OutboxEvent;
+import study.datajpa.entity.Team;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 엔티티 쓰기와 같은 트랜잭션, 같은 커넥션에서 outbox_event 를 적재한다.
+ * 엔티티 이벤트는 Hibernate post 이벤트에서 바로 기록해 벌크 연산(범위 이벤트)과의 순서를 유지한다.
+ * 같은 변경을 CacheInvalidations 에도 알려 다른 노드의 캐시를 무효화한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxRecorder implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final String INSERT_EVENT = "insert into outbox_event " +
+            "(aggregate_type, aggregate_id, event_type, payload, created_date, published, attempts) values (?, ?, ?, ?, ?, false, 0)";
+    private static final Set<Class<?>> AGGREGATES = Set.of(Member.class, Team.class, Item.class);
+
+    private final EntityManagerFactory emf;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ChangeVersions changeVersions;
+    private final ObjectProvider<RangeChangeListener> rangeChangeListeners;
+    private final ObjectProvider<JdbcChangeListener> jdbcChangeListeners;
+    private final CacheInvalidations cacheInvalidations;
+
+    @PostConstruct
+    public void register() {
+        HibernateEventListeners.append(emf, EventType.POST_INSERT, this);
+        HibernateEventListeners.append(emf, EventType.POST_UPDATE, this);
+        HibernateEventListeners.append(emf, EventType.POST_DELETE, this);
+    }
+
+    public static boolean isAggregate(Class<?> type) {
+        return AGGREGATES.contains(type);
+    }
+
+    /**
+     * 벌크 연산처럼 개별 엔티티 이벤트가 없는 변경을 범위 이벤트로 기록한다. 현재 트랜잭션에 참여한다.
+     */
+    public void recordRange(Class<?> aggregateType, Map<String, Object> description) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("outbox range event must be recorded inside a transaction");
+        }
+        jdbcTemplate.update(INSERT_EVENT, aggregateType.getSimpleName(), null, OutboxEvent.BULK,
+                toJson(description), Timestamp.valueOf(LocalDateTime.now()));
+        changeVersions.changed(aggregateType.getSimpleName(), false);
+        cacheInvalidations.regionChanged(aggregateType.getSimpleName());
+        rangeChangeListeners.orderedStream().forEach(listener -> listener.rangeRecorded(aggregateType.getSimpleName()));
+    }
+
+    /**
+     * JPA 를 거치지 않고 JDBC 로 바꾼 행을 엔티티 이벤트로 기록한다. 현재 트랜잭션에 참여한다.
+     */
+    public void record(Class<?> aggregateType, Object id, String eventType, Map<String, Object> payload) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("outbox event must be recorded inside a transaction");
+        }
+        jdbcTemplate.update(INSERT_EVENT, aggregateType.getSimpleName(), String.valueOf(id), eventType,
+                toJson(payload), Timestamp.valueOf(LocalDateTime.now()));
+        changeVersions.changed(aggregateType.getSimpleName(), false);
+        cacheInvalidations.entityChanged(aggregateType.getSimpleName(), id);
+        jdbcChangeListeners.orderedStream().forEach(listener -> listener.changeRecorded(aggregateType.getSimpleName(), id, eventType, payload));
+    }
+
+    /**
+     * StatelessSession 으로 쓴 엔티티를 JPA 쓰기와 같은 형식의 payload 로 기록한다. 현재 트랜잭션에 참여한다.
+     */
+    public void record(SharedSessionContractImplementor session, Object entity, String eventType) {
+        EntityPersister persister = session.getEntityPersister(null, entity);
+        Map<String, Object> payload = toMap(session, persister, persister.getPropertyValues(entity));
+        record(Hibernate.getClass(entity), persister.getIdentifier(entity, session), eventType, payload);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        record(event.getSession(), event.getEntity(), event.getId(), OutboxEvent.INSERT, event.getPersister(), event.getState());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        record(event.getSession(), event.getEntity(), event.getId(), OutboxEvent.UPDATE, event.getPersister(), event.getState());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        record(event.getSession(), event.getEntity(), event.getId(), OutboxEvent.DELETE, event.getPersister(), event.getDeletedState());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    private void record(EventSource session, Object entity, Serializable id, String eventType, EntityPersister persister, Object[] state) {
+        if (!isAggregate(entity.getClass())) {
+            return;
+        }
+
+        String payload = toJson(toMap(session, persister, state));
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_EVENT)) {
+                statement.setString(1, entity.getClass().getSimpleName());
+                statement.setString(2, String.valueOf(id));
+                statement.setString(3, eventType);
+                statement.setString(4, payload);
+                statement.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
+                statement.executeUpdate();
+            }
+        });
+        changeVersions.changed(entity.getClass().getSimpleName(), true);
+        cacheInvalidations.entityChanged(entity.getClass().getSimpleName(), id);
+    }
+
+    // 컬렉션은 제외하고, 연관 엔티티는 식별자로 기록한다.
+    private Map<String, Object> toMap(SharedSessionContractImplementor session, EntityPersister persister, Object[] state) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        if (state == null) {
+            return map;
+        }
+
+        String[] names = persister.getPropertyNames();
+        Type[] types = persister.getPropertyTypes();
+        for (int i = 0; i < names.length; i++) {
+            Object value = state[i];
+            if (types[i].isCollectionType()) {
+                continue;
+            }
+            if (types[i].isEntityType() && value != null) {
+                // 준영속 엔티티를 참조할 수도 있으므로 영속성 컨텍스트가 아니라 엔티티에서 식별자를 읽는다.
+                value = ForeignKeys.getEntityIdentifierIfNotUnsaved(
+                        ((EntityType) types[i]).getAssociatedEntityName(), value, session);
+            }
+            map.put(names[i], value);
+        }
+        return map;
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("outbox payload serialization failed", e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package study.datajpa.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.OutboxEvent;
+import study.datajpa.repository.OutboxEventRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * 미발행 outbox 이벤트를 id 순서대로 배치로 읽어 구독자들에게 전달한다.
+ * 실패하면 다음 주기에 다시 전달하므로 최소 한 번(at-least-once) 전달된다.
+ * <p>
+ * 배치 전달이 실패하면 이벤트를 하나씩 다시 전달해서 실패한 이벤트의 attempts 만 올린다.
+ * 실패한 이벤트와 같은 aggregate(범위 이벤트면 같은 타입 전체)의 뒤 이벤트는 순서를 지키기 위해 이번 주기에 전달하지 않는다.
+ * max-attempts 번 실패한 이벤트는 더 이상 조회하지 않는다(dead letter). 이때부터 그 aggregate 의 뒤 이벤트는 다시 전달된다.
+ * <p>
+ * 여러 노드로 띄우면 outbox_relay_lease 를 잡은 한 노드만 발행한다. lease-ms 안에 다시 잡지 못하면 다른 노드가 이어받는다.
+ * 배치 하나를 lease-ms 보다 오래 처리하면 두 노드가 겹쳐 전달할 수 있으므로 lease-ms 는 배치 처리 시간보다 넉넉히 잡는다.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private static final String LEASE_NAME = "outbox";
+    private static final String ACQUIRE_LEASE = "update outbox_relay_lease set owner = ?, lease_until = ? " +
+            "where name = ? and (owner = ? or lease_until < ?)";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectProvider<OutboxSubscriber> subscribers;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retentionHours;
+    private final long leaseMillis;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       ObjectProvider<OutboxSubscriber> subscribers,
+                       TransactionTemplate transactionTemplate,
+                       JdbcTemplate jdbcTemplate,
+                       @Value("${app.outbox.node-id:}") String nodeId,
+                       @Value("${app.outbox.batch-size:100}") int batchSize,
+                       @Value("${app.outbox.max-attempts:10}") int maxAttempts,
+                       @Value("${app.outbox.retention-hours:24}") long retentionHours,
+                       @Value("${app.outbox.lease-ms:30000}") long leaseMillis) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.subscribers = subscribers;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.nodeId = nodeId.isEmpty() ? UUID.randomUUID().toString() : nodeId;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retentionHours = retentionHours;
+        this.leaseMillis = leaseMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:500}")
+    public void relay() {
+        List<OutboxEvent> batch;
+        do {
+            batch = outboxEventRepository.findUnpublished(maxAttempts, PageRequest.of(0, batchSize));
+            // 읽은 뒤에 lease 를 확인해야 lease 를 넘겨준 노드가 이미 읽은 배치를 전달하지 않는다.
+            if (batch.isEmpty() || !acquireLease()) {
+                return;
+            }
+        } while (publish(batch) && batch.size() == batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "PT1H", initialDelayString = "PT1H")
+    public void purge() {
+        transactionTemplate.executeWithoutResult(status ->
+                outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minusHours(retentionHours)));
+    }
+
+    /**
+     * lease 를 새로 잡거나 연장한다. 다른 노드가 유효한 lease 를 갖고 있으면 false
+     */
+    boolean acquireLease() {
+        LocalDateTime now = LocalDateTime.now();
+        Object[] args = {nodeId, Timestamp.valueOf(now.plusNanos(leaseMillis * 1_000_000)), LEASE_NAME, nodeId, Timestamp.valueOf(now)};
+        if (jdbcTemplate.update(ACQUIRE_LEASE, args) == 1) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update("insert into outbox_relay_lease (name, owner, lease_until) values (?, ?, ?)",
+                    LEASE_NAME, nodeId, args[1]);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false; // 다른 노드가 먼저 만들었다
+        }
+    }
+
+    // 모두 발행했으면 true
+    private boolean publish(List<OutboxEvent> batch) {
+        try {
+            subscribers.orderedStream().forEach(subscriber -> subscriber.onEvents(batch));
+        } catch (RuntimeException e) {
+            log.warn("outbox batch delivery failed, retrying events {}..{} one by one",
+                    batch.get(0).getId(), batch.get(batch.size() - 1).getId(), e);
+            return publishEach(batch);
+        }
+
+        List<Long> ids = batch.stream().map(OutboxEvent::getId).collect(Collectors.toList());
+        transactionTemplate.executeWithoutResult(status -> outboxEventRepository.markPublished(ids));
+        return true;
+    }
+
+    private boolean publishEach(List<OutboxEvent> batch) {
+        Set<String> blocked = new HashSet<>();
+        for (OutboxEvent event : batch) {
+            if (blocked.contains(event.getAggregateType()) || blocked.contains(aggregateKey(event))) {
+                continue;
+            }
+            try {
+                subscribers.orderedStream().forEach(subscriber -> subscriber.onEvents(List.of(event)));
+            } catch (RuntimeException e) {
+                fail(event, e);
+                blocked.add(event.isRange() ? event.getAggregateType() : aggregateKey(event));
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.markPublished(List.of(event.getId())));
+        }
+        return blocked.isEmpty();
+    }
+
+    private void fail(OutboxEvent event, RuntimeException e) {
+        transactionTemplate.executeWithoutResult(status -> outboxEventRepository.incrementAttempts(List.of(event.getId())));
+        if (event.getAttempts() + 1 >= maxAttempts) {
+            log.error("outbox event {} dead-lettered after {} attempts", event.getId(), maxAttempts, e);
+        } else {
+            log.warn("outbox event {} delivery failed, will be retried", event.getId(), e);
+        }
+    }
+
+    private static String aggregateKey(OutboxEvent event) {
+        return event.getAggregateType() + ":" + event.getAggregateId();
+    }
+}
@@ -0,0 +1,14 @@
+package study.datajpa.outbox;
+
+import study.datajpa.entity.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * OutboxRelay 가 발행하는 변경 이벤트 구독자. 이벤트는 id 순서(같은 aggregate 안에서의 순서)로 전달되며
+ * 최소 한 번(at-least-once) 전달되므로 중복 처리에 안전해야 한다.
+ */
+public interface OutboxSubscriber {
+
+    void onEvents(List<OutboxEvent> events);
+}
@@ -0,0 +1,10 @@
+package study.datajpa.outbox;
+
+/**
+ * 범위 이벤트(벌크 연산, StatelessSession 쓰기 등 엔티티 이벤트가 없는 변경)가 기록되는 순간 같은 트랜잭션 안에서 호출된다.
+ * relay 로 전달되기 전까지 엔티티 이벤트로 유지하는 메모리 구조가 틀릴 수 있음을 미리 알리는 용도다.
+ */
+public interface RangeChangeListener {
+
+    void rangeRecorded(String aggregateType);
+}
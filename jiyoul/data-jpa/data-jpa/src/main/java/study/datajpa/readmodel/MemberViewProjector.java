@@ -0,0 +1,240 @@
+package study.datajpa.readmodel;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.config.HibernateEventListeners;
+import study.datajpa.outbox.OutboxSubscriber;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.OutboxEvent;
+import study.datajpa.entity.Team;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Member/Team 쓰기를 member_view 에 반영한다. app.read-model.enabled=true 일 때만 켜진다.
+ * JDBC 배치가 켜져 있으면 PostInsert 시점에 행이 아직 DB 에 없을 수 있으므로
+ * 실제 SQL 은 같은 트랜잭션의 커밋 직전(before transaction completion)에 실행한다.
+ * StatelessSession 쓰기처럼 바뀐 식별자를 아는 경우는 쓴 쪽이 refreshMembers/refreshTeams 로 그 행만 맞춘다.
+ * <p>
+ * JPQL 벌크 연산은 엔티티 이벤트가 없으므로 outbox 범위 이벤트를 받아 다시 맞춘다. Member 범위 이벤트에 partitionFrom/partitionTo 가
+ * 있으면 그 id 구간만, 없으면 전체를 맞추고, Team 범위 이벤트는 팀 이름만 다시 채운다.
+ * 다시 맞출 때는 원본 행을 select ... for update 로 잠가서, 커밋 전 upsert/delete 를 한 트랜잭션이 끝난 뒤에 읽는다.
+ * 그래서 지운 회원을 되살리거나 새 이름을 옛 이름으로 덮지 않는다. member_view 는 지우고 다시 넣지 않고 merge 로 맞춘다.
+ * <p>
+ * upsert 는 H2 의 merge into ... key (...) 문법이다. 다른 DB 에서 켜려면 UPSERT_MEMBER/UPSERT_MEMBERS 를 그 DB 의 upsert 로 바꿔야 한다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.read-model.enabled", havingValue = "true")
+public class MemberViewProjector implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener, OutboxSubscriber {
+
+    private static final String SELECT_MEMBER_ROW = "select m.member_id, m.username, m.age, m.team_id, t.name " +
+            "from member m left join team t on t.team_id = m.team_id";
+    private static final String UPSERT_MEMBER = "merge into member_view (member_id, username, age, team_id, team_name) key (member_id) " +
+            SELECT_MEMBER_ROW + " where m.member_id = ?";
+    private static final String DELETE_MEMBER = "delete from member_view where member_id = ?";
+    private static final String RENAME_TEAM = "update member_view set team_name = ? where team_id = ?";
+    private static final String REFRESH_TEAM_NAME = "update member_view v set team_name = " +
+            "(select t.name from team t where t.team_id = v.team_id) where v.team_id = ?";
+
+    private static final String LOCK_MEMBERS = "select member_id from member where member_id >= ? and member_id < ? for update";
+    private static final String LOCK_MEMBER_TEAMS = "select team_id from team where team_id in " +
+            "(select team_id from member where member_id >= ? and member_id < ?) for update";
+    private static final String UPSERT_MEMBERS = "merge into member_view (member_id, username, age, team_id, team_name) key (member_id) " +
+            SELECT_MEMBER_ROW + " where m.member_id >= ? and m.member_id < ?";
+    private static final String DELETE_MISSING_MEMBERS = "delete from member_view v where v.member_id >= ? and v.member_id < ? " +
+            "and not exists (select 1 from member m where m.member_id = v.member_id)";
+    private static final String LOCK_TEAMS = "select team_id from team for update";
+    private static final String REFRESH_TEAM_NAMES = "update member_view v set team_name = " +
+            "(select t.name from team t where t.team_id = v.team_id) where v.team_id is not null";
+    private static final String PARTITION_FROM = "partitionFrom";
+    private static final String PARTITION_TO = "partitionTo";
+
+    private final EntityManagerFactory emf;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @PostConstruct
+    public void register() {
+        Dialect dialect = emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        if (!(dialect instanceof H2Dialect)) {
+            throw new IllegalStateException("member_view upserts use H2 merge syntax; port them before enabling app.read-model on " + dialect);
+        }
+        HibernateEventListeners.append(emf, EventType.POST_INSERT, this);
+        HibernateEventListeners.append(emf, EventType.POST_UPDATE, this);
+        HibernateEventListeners.append(emf, EventType.POST_DELETE, this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        refreshRange(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * member_id 가 [from, to) 인 회원 행을 member 테이블에서 다시 맞춘다. 새 트랜잭션에서 실행한다.
+     */
+    public void refreshRange(long from, long to) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForList(LOCK_MEMBERS, Long.class, from, to);
+            jdbcTemplate.queryForList(LOCK_MEMBER_TEAMS, Long.class, from, to);
+            int rows = jdbcTemplate.update(UPSERT_MEMBERS, from, to);
+            int deleted = jdbcTemplate.update(DELETE_MISSING_MEMBERS, from, to);
+            log.info("member_view refreshed [{}, {}): {} rows, {} deleted", from, to, rows, deleted);
+        });
+    }
+
+    /**
+     * 모든 회원 행의 팀 이름을 team 테이블에서 다시 채운다. 새 트랜잭션에서 실행한다.
+     */
+    public void refreshTeamNames() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForList(LOCK_TEAMS, Long.class);
+            jdbcTemplate.update(REFRESH_TEAM_NAMES);
+        });
+    }
+
+    /**
+     * 회원 행을 member 테이블에서 다시 읽어 맞춘다. 삭제된 회원은 지운다. 현재 트랜잭션에 참여한다.
+     */
+    public void refreshMembers(Collection<Long> memberIds) {
+        List<Object[]> args = memberIds.stream().map(id -> new Object[]{id}).collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(DELETE_MEMBER, args);
+        jdbcTemplate.batchUpdate(UPSERT_MEMBER, args);
+    }
+
+    /**
+     * 팀에 속한 회원 행의 팀 이름을 team 테이블에서 다시 읽어 맞춘다. 현재 트랜잭션에 참여한다.
+     */
+    public void refreshTeams(Collection<Long> teamIds) {
+        jdbcTemplate.batchUpdate(REFRESH_TEAM_NAME, teamIds.stream().map(id -> new Object[]{id}).collect(Collectors.toList()));
+    }
+
+    // 한 배치의 Member 범위는 구간들을 덮는 구간 하나로 합친다.
+    @Override
+    public void onEvents(List<OutboxEvent> events) {
+        long from = Long.MAX_VALUE;
+        long to = Long.MIN_VALUE;
+        boolean teamsChanged = false;
+        for (OutboxEvent event : events) {
+            if (!event.isRange()) {
+                continue;
+            }
+            if (event.getAggregateType().equals(Team.class.getSimpleName())) {
+                teamsChanged = true;
+            } else if (event.getAggregateType().equals(Member.class.getSimpleName())) {
+                long[] range = memberRange(event);
+                from = Math.min(from, range[0]);
+                to = Math.max(to, range[1]);
+            }
+        }
+        if (from < to) {
+            refreshRange(from, to);
+        }
+        if (teamsChanged) {
+            refreshTeamNames();
+        }
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            beforeCommit(event.getSession(), UPSERT_MEMBER, event.getId());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Member) {
+            beforeCommit(event.getSession(), UPSERT_MEMBER, event.getId());
+        } else if (event.getEntity() instanceof Team && nameChanged(event)) {
+            beforeCommit(event.getSession(), RENAME_TEAM, ((Team) event.getEntity()).getName(), event.getId());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            beforeCommit(event.getSession(), DELETE_MEMBER, event.getId());
+        } else if (event.getEntity() instanceof Team) {
+            beforeCommit(event.getSession(), "update member_view set team_id = null, team_name = null where team_id = ?", event.getId());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    // 구간을 모르는 범위 이벤트는 전체 구간이다.
+    private long[] memberRange(OutboxEvent event) {
+        try {
+            JsonNode payload = objectMapper.readTree(event.getPayload());
+            if (payload.hasNonNull(PARTITION_FROM) && payload.hasNonNull(PARTITION_TO)) {
+                return new long[]{payload.get(PARTITION_FROM).asLong(), payload.get(PARTITION_TO).asLong()};
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("unreadable range payload in outbox event {}, refreshing all members", event.getId(), e);
+        }
+        return new long[]{Long.MIN_VALUE, Long.MAX_VALUE};
+    }
+
+    private boolean nameChanged(PostUpdateEvent event) {
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            return true;
+        }
+        int index = event.getPersister().getEntityMetamodel().getPropertyIndex("name");
+        return !Objects.equals(oldState[index], event.getState()[index]);
+    }
+
+    private void beforeCommit(EventSource session, String sql, Object... params) {
+        session.getActionQueue().registerProcess((SessionImplementor s) -> execute(s, sql, params));
+    }
+
+    private void execute(SessionImplementor session, String sql, Object[] params) {
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < params.length; i++) {
+                    statement.setObject(i + 1, params[i]);
+                }
+                statement.executeUpdate();
+            }
+        });
+    }
+}
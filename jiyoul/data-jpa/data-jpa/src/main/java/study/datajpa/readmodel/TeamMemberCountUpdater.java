@@ -0,0 +1,108 @@
+package study.datajpa.readmodel;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.internal.ForeignKeys;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.EntityType;
+import org.springframework.stereotype.Component;
+import study.datajpa.config.HibernateEventListeners;
+import study.datajpa.entity.Member;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.util.Objects;
+
+/**
+ * Member 의 insert/팀 변경/delete 를 team.member_count 에 증감으로 반영한다.
+ * 절대값을 쓰지 않고 member_count = member_count + ? 로 갱신하므로 동시에 같은 팀에 회원을 추가해도 유실되지 않는다.
+ * MemberViewProjector 와 같은 이유로 SQL 은 커밋 직전에 실행한다.
+ * JDBC 로 회원을 지우는 곳(MemberArchiver)은 직접 감소시키고, 어긋나면 TeamRepository.recountMembers() 로 다시 계산한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class TeamMemberCountUpdater implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final String ADD_MEMBER_COUNT = "update team set member_count = member_count + ? where team_id = ?";
+
+    private final EntityManagerFactory emf;
+
+    @PostConstruct
+    public void register() {
+        HibernateEventListeners.append(emf, EventType.POST_INSERT, this);
+        HibernateEventListeners.append(emf, EventType.POST_UPDATE, this);
+        HibernateEventListeners.append(emf, EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            add(event.getSession(), teamId(event.getSession(), event.getPersister(), event.getState()), 1);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member) || event.getOldState() == null) {
+            return;
+        }
+        Serializable oldTeamId = teamId(event.getSession(), event.getPersister(), event.getOldState());
+        Serializable newTeamId = teamId(event.getSession(), event.getPersister(), event.getState());
+        if (!Objects.equals(oldTeamId, newTeamId)) {
+            add(event.getSession(), oldTeamId, -1);
+            add(event.getSession(), newTeamId, 1);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            add(event.getSession(), teamId(event.getSession(), event.getPersister(), event.getDeletedState()), -1);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    // 팀은 프록시, 준영속 엔티티일 수 있으므로 영속성 컨텍스트가 아니라 엔티티에서 식별자를 읽는다.
+    private Serializable teamId(EventSource session, EntityPersister persister, Object[] state) {
+        int index = persister.getEntityMetamodel().getPropertyIndex("team");
+        Object team = state[index];
+        if (team == null) {
+            return null;
+        }
+        String teamEntityName = ((EntityType) persister.getPropertyTypes()[index]).getAssociatedEntityName();
+        return ForeignKeys.getEntityIdentifierIfNotUnsaved(teamEntityName, team, session);
+    }
+
+    private void add(EventSource session, Serializable teamId, int delta) {
+        if (teamId == null) {
+            return;
+        }
+        session.getActionQueue().registerProcess((SessionImplementor s) -> s.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(ADD_MEMBER_COUNT)) {
+                statement.setInt(1, delta);
+                statement.setObject(2, teamId);
+                statement.executeUpdate();
+            }
+        }));
+    }
+}
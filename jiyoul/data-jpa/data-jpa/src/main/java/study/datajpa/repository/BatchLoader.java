@@ -0,0 +1,130 @@
+package study.datajpa.repository;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * 같은 id 에 대한 동시 조회를 하나로 합치고(single-flight),
+ * 짧은 윈도우 안에 들어온 서로 다른 id 들은 한 번의 배치 조회로 묶는다.
+ * 조회는 로더 스레드에서 실행되므로 엔티티를 반환하면 준영속 상태이고 지연 로딩할 수 없다.
+ * 합쳐진 요청은 같은 결과를 받으므로 copier 를 주면 호출자마다 복사본을 돌려준다. 주지 않으면 같은 인스턴스를 공유한다.
+ */
+public class BatchLoader<T, ID> implements DisposableBean {
+
+    private final Function<List<ID>, List<T>> batchFunction;
+    private final Function<T, ID> idExtractor;
+    private final UnaryOperator<T> copier;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    private final Map<ID, CompletableFuture<Optional<T>>> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    private List<ID> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledDispatch;
+
+    public BatchLoader(String name, Function<List<ID>, List<T>> batchFunction, Function<T, ID> idExtractor,
+                       long windowMillis, int maxBatchSize) {
+        this(name, batchFunction, idExtractor, null, windowMillis, maxBatchSize);
+    }
+
+    public BatchLoader(String name, Function<List<ID>, List<T>> batchFunction, Function<T, ID> idExtractor,
+                       UnaryOperator<T> copier, long windowMillis, int maxBatchSize) {
+        this.batchFunction = batchFunction;
+        this.idExtractor = idExtractor;
+        this.copier = copier;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<Optional<T>> load(ID id) {
+        CompletableFuture<Optional<T>> shared = loadShared(id);
+        return copier == null ? shared : shared.thenApply(result -> result.map(copier));
+    }
+
+    private CompletableFuture<Optional<T>> loadShared(ID id) {
+        CompletableFuture<Optional<T>> created = new CompletableFuture<>();
+        CompletableFuture<Optional<T>> existing = inFlight.putIfAbsent(id, created);
+        if (existing != null) {
+            return existing;
+        }
+
+        enqueue(id);
+        return created;
+    }
+
+    private void enqueue(ID id) {
+        List<ID> full = null;
+        synchronized (this) {
+            pending.add(id);
+            if (pending.size() >= maxBatchSize) {
+                full = drainPending();
+            } else if (scheduledDispatch == null) {
+                scheduledDispatch = scheduler.schedule(this::dispatchPending, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (full != null) {
+            List<ID> batch = full;
+            scheduler.execute(() -> dispatch(batch));
+        }
+    }
+
+    private void dispatchPending() {
+        List<ID> batch;
+        synchronized (this) {
+            batch = drainPending();
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    private List<ID> drainPending() {
+        List<ID> batch = pending;
+        pending = new ArrayList<>();
+        if (scheduledDispatch != null) {
+            scheduledDispatch.cancel(false);
+            scheduledDispatch = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(List<ID> ids) {
+        Map<ID, T> loaded;
+        try {
+            loaded = batchFunction.apply(ids).stream()
+                    .collect(Collectors.toMap(idExtractor, Function.identity()));
+        } catch (Throwable ex) {
+            ids.forEach(id -> inFlight.remove(id).completeExceptionally(ex));
+            return;
+        }
+
+        // 완료 전에 in-flight 에서 제거해야 이후 요청이 새로 조회한다.
+        ids.forEach(id -> inFlight.remove(id).complete(Optional.ofNullable(loaded.get(id))));
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        inFlight.values().forEach(future -> future.cancel(false));
+    }
+}
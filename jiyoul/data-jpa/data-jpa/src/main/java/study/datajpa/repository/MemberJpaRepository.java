@@ -1,10 +1,13 @@
 package study.datajpa.repository;
 
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.LongType;
 import org.springframework.stereotype.Repository;
 import study.datajpa.entity.Member;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +26,7 @@ public class MemberJpaRepository {
         em.remove(member);
     }
 
+    // 결과 전체가 영속성 컨텍스트에 올라간다. 전체 테이블을 훑는 작업은 StatelessBatchProcessor 를 쓴다.
     public List<Member> findAll() {
         return em.createQuery("select m from Member m", Member.class).getResultList();
     }
@@ -66,6 +70,36 @@ public class MemberJpaRepository {
                 .getSingleResult();
     }
 
+    /**
+     * findByPage + totalCount 를 한 번의 쿼리로 처리한다.
+     * count(*) over() 는 limit/offset 이 적용되기 전 전체 결과에 대해 계산되므로 모든 행에 같은 전체 건수가 붙는다.
+     * offset 이 전체 건수를 넘어서 행이 하나도 없으면 건수를 알 수 없으므로 그때만 count 쿼리를 한 번 더 실행한다.
+     */
+    @SuppressWarnings("unchecked")
+    public OffsetPage<Member> findPageWithCount(int age, int offset, int limit) {
+        List<Object[]> rows = em.createNativeQuery(
+                        "select {m.*}, count(*) over() as total_count from member m" +
+                                " where m.age = :age order by m.username desc")
+                .unwrap(NativeQuery.class)
+                .addEntity("m", Member.class)
+                .addScalar("total_count", LongType.INSTANCE)
+                .setParameter("age", age)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+
+        if (rows.isEmpty()) {
+            long totalCount = offset == 0 ? 0 : totalCount(age);
+            return new OffsetPage<>(new ArrayList<>(), offset, limit, totalCount);
+        }
+
+        List<Member> content = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            content.add((Member) row[0]);
+        }
+        return new OffsetPage<>(content, offset, limit, (Long) rows.get(0)[1]);
+    }
+
     public int bulkAgePlus(int age) {
         return em.createQuery("update Member m set m.age = m.age + 1" + "where m.age >= :age")
                 .setParameter("age", age)
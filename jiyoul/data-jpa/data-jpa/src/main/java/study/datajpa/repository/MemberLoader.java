@@ -0,0 +1,19 @@
+package study.datajpa.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.datajpa.dto.MemberDto;
+
+/**
+ * 팀 이름까지 한 번에 조회한 MemberDto 를 돌려준다.
+ * 로더 스레드에서 조회하므로 엔티티를 넘기면 지연 로딩이 불가능하고, 합쳐진 요청끼리 수정 내용이 섞이므로 호출자마다 복사본을 준다.
+ */
+@Component
+public class MemberLoader extends BatchLoader<MemberDto, Long> {
+
+    public MemberLoader(MemberRepository memberRepository,
+                        @Value("${app.member-loader.window-ms:2}") long windowMillis,
+                        @Value("${app.member-loader.max-batch-size:100}") int maxBatchSize) {
+        super("member-loader", memberRepository::findMemberDtoByIds, MemberDto::getId, MemberDto::copy, windowMillis, maxBatchSize);
+    }
+}
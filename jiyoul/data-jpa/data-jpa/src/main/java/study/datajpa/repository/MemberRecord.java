@@ -0,0 +1,21 @@
+package study.datajpa.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * member 와 member_archive 를 합쳐 조회할 때의 행.
+ */
+public interface MemberRecord {
+
+    Long getId();
+
+    String getUsername();
+
+    int getAge();
+
+    Long getTeamId();
+
+    LocalDateTime getCreatedDate();
+
+    boolean isArchived();
+}
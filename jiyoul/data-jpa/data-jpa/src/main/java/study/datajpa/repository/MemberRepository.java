@@ -4,15 +4,20 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 
 import javax.persistence.LockModeType;
 import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom, JpaSpecificationExecutor<Member> {
+@ReadOnlyQueries
+public interface MemberRepository extends MultiLoadRepository<Member, Long>, MemberRepositoryCustom, JpaSpecificationExecutor<Member> {
 
     List<Member> findByUsernameAndAgeGreaterThan(String username, int age);
 
@@ -29,16 +34,28 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     @Query("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) " + "from Member m join m.team t")
     List<MemberDto> findMemberDto();
 
+    @Query("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) from Member m left join m.team t where m.id in :ids")
+    List<MemberDto> findMemberDtoByIds(@Param("ids") Collection<Long> ids);
+
     @Query("select m from Member m where m.username in :names")
     List<Member> findByNames(@Param("names") List<String> names);
 
     List<Member> findListByUsername(String name); //컬렉션
+    @UsernameLookup
     Member findMemberByUsername(String name); //단건
+    @UsernameLookup
     Optional<Member> findOptionalByUsername(String name); //단건 Optional
 
     @Query(value = "select m from Member m")
     Page<Member> findByAge(int age, Pageable pageable);
 
+    Page<Member> findPageByAge(int age, Pageable pageable); //파생 쿼리 + count 쿼리
+
+    //엔티티를 읽지 않고 변경 시각만 조회 (ETag 계산용)
+    @Query("select m.lastModifiedDate from Member m where m.id = :id")
+    Optional<LocalDateTime> findLastModifiedDateById(@Param("id") Long id);
+
+    @Transactional
     @Modifying(clearAutomatically = true)
     @Query("update Member m set m.age = m.age + 1 where m.age >= :age")
     int bulkAgePlus(@Param("age") int age);
@@ -66,6 +83,7 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     @QueryHints(value = @QueryHint(name = "org.hibernate.readOnly", value = "true"))
     Member findReadOnlyByUsername(String username);
 
+    @Transactional(propagation = Propagation.MANDATORY)
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     List<Member> findLockByUsername(String name);
 
@@ -78,4 +96,20 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     @Query(value = "SELECT m.member_id as id, m.username, t.name as teamName FROM member m left join team t",
             countQuery = "SELECT count(*) from member", nativeQuery = true)
     Page<MemberProjection> findByNativeProjection(Pageable pageable);
+
+    //보관된 회원(member_archive)까지 조회하려면 IncludingArchive 메서드를 명시적으로 사용한다.
+    @Query(value = "select m.member_id as id, m.username, m.age, m.team_id as teamId, m.created_date as createdDate, false as archived" +
+            " from member m where m.username = :username" +
+            " union all" +
+            " select a.member_id, a.username, a.age, a.team_id, a.created_date, true" +
+            " from member_archive a where a.username = :username", nativeQuery = true)
+    List<MemberRecord> findByUsernameIncludingArchive(@Param("username") String username);
+
+    @Query(value = "select * from (" +
+            "select m.member_id as id, m.username, m.age, m.team_id as teamId, m.created_date as createdDate, false as archived from member m" +
+            " union all" +
+            " select a.member_id, a.username, a.age, a.team_id, a.created_date, true from member_archive a) u",
+            countQuery = "select (select count(*) from member) + (select count(*) from member_archive)",
+            nativeQuery = true)
+    Page<MemberRecord> findAllIncludingArchive(Pageable pageable);
 }
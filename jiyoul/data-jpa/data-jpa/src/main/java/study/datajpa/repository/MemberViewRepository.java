@@ -0,0 +1,9 @@
+package study.datajpa.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import study.datajpa.entity.MemberView;
+
+@ReadOnlyQueries
+public interface MemberViewRepository extends JpaRepository<MemberView, Long>, JpaSpecificationExecutor<MemberView> {
+}
@@ -0,0 +1,35 @@
+package study.datajpa.repository;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.jpa.domain.Specification;
+import study.datajpa.entity.MemberView;
+
+public class MemberViewSpec {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    public static Specification<MemberView> teamName(final String teamName) {
+        return (Specification<MemberView>) (root, query, builder) -> {
+            if (StringUtils.isEmpty(teamName)) {
+                return null;
+            }
+            return builder.equal(root.get("teamName"), teamName);
+        };
+    }
+
+    public static Specification<MemberView> usernameStartsWith(final String username) {
+        return (Specification<MemberView>) (root, query, builder) -> {
+            if (StringUtils.isEmpty(username)) {
+                return null;
+            }
+            return builder.like(root.get("username"), escapeLike(username) + "%", LIKE_ESCAPE);
+        };
+    }
+
+    // 입력한 %, _ 는 와일드카드가 아니라 글자로 찾는다.
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
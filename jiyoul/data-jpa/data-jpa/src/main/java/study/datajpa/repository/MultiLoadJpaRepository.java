@@ -0,0 +1,46 @@
+package study.datajpa.repository;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 모든 리포지토리의 기반 클래스. DataJpaApplication 의 @EnableJpaRepositories(repositoryBaseClass) 로 등록한다.
+ */
+public class MultiLoadJpaRepository<T, ID> extends SimpleJpaRepository<T, ID> implements MultiLoadRepository<T, ID> {
+
+    private final EntityManager em;
+
+    public MultiLoadJpaRepository(JpaEntityInformation<T, ?> entityInformation, EntityManager em) {
+        super(entityInformation, em);
+        this.em = em;
+    }
+
+    @Override
+    public List<T> findAllByIdInOrder(Collection<ID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Session session = em.unwrap(Session.class);
+        // 설정하지 않으면 방언 기본값(H2 는 제한 없음)으로 IN 목록이 한없이 길어진다.
+        int batchSize = session.getSessionFactory().unwrap(SessionFactoryImplementor.class)
+                .getSessionFactoryOptions().getDefaultBatchFetchSize();
+        return session.byMultipleIds(getDomainClass())
+                .enableSessionCheck(true)
+                .enableOrderedReturn(true)
+                .withBatchSize(batchSize)
+                .multiLoad(ids.stream().map(Serializable.class::cast).collect(Collectors.toList()))
+                .stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+}
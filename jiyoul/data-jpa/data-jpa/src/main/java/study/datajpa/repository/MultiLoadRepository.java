@@ -0,0 +1,17 @@
+package study.datajpa.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.util.Collection;
+import java.util.List;
+
+@NoRepositoryBean
+public interface MultiLoadRepository<T, ID> extends JpaRepository<T, ID> {
+
+    /**
+     * ids 순서대로 엔티티를 반환한다. 없는 id 는 건너뛴다.
+     * 영속성 컨텍스트(와 2차 캐시)에 있는 엔티티는 SQL 없이 돌려주고, 나머지만 hibernate.default_batch_fetch_size 개씩 IN 으로 조회한다.
+     */
+    List<T> findAllByIdInOrder(Collection<ID> ids);
+}
@@ -0,0 +1,28 @@
+package study.datajpa.repository;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * offset/limit 조회 결과와 전체 건수를 함께 담는다.
+ */
+@Getter
+public class OffsetPage<T> {
+
+    private final List<T> content;
+    private final int offset;
+    private final int limit;
+    private final long totalCount;
+
+    public OffsetPage(List<T> content, int offset, int limit, long totalCount) {
+        this.content = content;
+        this.offset = offset;
+        this.limit = limit;
+        this.totalCount = totalCount;
+    }
+
+    public boolean hasNext() {
+        return (long) offset + content.size() < totalCount;
+    }
+}
@@ -0,0 +1,29 @@
+package study.datajpa.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import study.datajpa.entity.OutboxEvent;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    @Query("select e from OutboxEvent e where e.published = false and e.attempts < :maxAttempts order by e.id")
+    List<OutboxEvent> findUnpublished(@Param("maxAttempts") int maxAttempts, Pageable pageable);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.published = true where e.id in :ids")
+    int markPublished(@Param("ids") List<Long> ids);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.attempts = e.attempts + 1 where e.id in :ids")
+    int incrementAttempts(@Param("ids") List<Long> ids);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.published = true and e.createdDate < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
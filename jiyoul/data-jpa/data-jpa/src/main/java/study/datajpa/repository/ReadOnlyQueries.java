@@ -0,0 +1,25 @@
+package study.datajpa.repository;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 리포지토리 인터페이스에 붙이면 선언된 쿼리 메서드가 기본으로 읽기 전용 트랜잭션에서 실행된다.
+ * JpaTransactionManager 가 세션을 FlushMode.MANUAL 로 바꾸므로 쿼리 전이나 커밋 시 dirty checking/flush 를 하지 않는다.
+ * 트랜잭션이 EntityManager 를 새로 연 경우에는 defaultReadOnly 도 켜서 조회한 엔티티의 스냅샷을 만들지 않는다.
+ * OSIV 로 이미 바인딩된 EntityManager 는 flush 모드만 바뀐다.
+ * 쓰기 메서드(@Modifying)는 @Transactional 을 직접 붙여 옵트인한다. 락 조회는 메서드가 끝나면서 락이 풀리지 않도록
+ * propagation = MANDATORY 로 호출자의 트랜잭션을 요구한다.
+ * 이미 쓰기 트랜잭션 안에서 호출되면 바깥 트랜잭션을 그대로 따르므로 읽은 엔티티를 수정할 수 있다.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Transactional(readOnly = true)
+public @interface ReadOnlyQueries {
+}
@@ -1,7 +1,28 @@
 package study.datajpa.repository;
 
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.TeamSummaryDto;
 import study.datajpa.entity.Team;
 
-public interface TeamRepository extends JpaRepository<Team, Long> {
+import java.util.List;
+
+@ReadOnlyQueries
+public interface TeamRepository extends MultiLoadRepository<Team, Long> {
+
+    //컬렉션을 로딩하지 않고 group by 한 번으로 팀별 회원 수 조회
+    @Query("select new study.datajpa.dto.TeamSummaryDto(t.id, t.name, count(m)) " +
+            "from Team t left join t.members m group by t.id, t.name order by t.id")
+    List<TeamSummaryDto> findTeamSummaries();
+
+    //유지 중인 team.member_count 를 그대로 읽는다 (조인, 집계 없음)
+    @Query("select new study.datajpa.dto.TeamSummaryDto(t.id, t.name, t.memberCount) from Team t order by t.id")
+    List<TeamSummaryDto> findTeamSummariesByMemberCount();
+
+    //member_count 가 어긋났을 때 다시 계산
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Team t set t.memberCount = (select count(m) from Member m where m.team = t)")
+    int recountMembers();
 }
@@ -0,0 +1,15 @@
+package study.datajpa.repository;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 첫 번째 인자가 username 인 단건/목록 조회. MemberUsernameFilter 가 확실히 없다고 답하면
+ * 쿼리를 실행하지 않고 빈 결과(null, Optional.empty(), 빈 List)를 반환한다.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface UsernameLookup {
+}
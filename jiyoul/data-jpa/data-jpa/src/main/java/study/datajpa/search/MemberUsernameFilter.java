@@ -0,0 +1,323 @@
+package study.datajpa.search;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.MergeEvent;
+import org.hibernate.event.spi.MergeEventListener;
+import org.hibernate.event.spi.PersistEvent;
+import org.hibernate.event.spi.PersistEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.cache.Invalidation;
+import study.datajpa.cache.InvalidationBus;
+import study.datajpa.cache.InvalidationListener;
+import study.datajpa.config.HibernateEventListeners;
+import study.datajpa.entity.Member;
+import study.datajpa.outbox.JdbcChangeListener;
+import study.datajpa.outbox.RangeChangeListener;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Member.username Bloom filter. @UsernameLookup 조회에서 확실히 없는 username 은 DB 에 가지 않게 한다.
+ * <p>
+ * 거짓 음성(있는데 없다고 답함)이 나오면 안 되므로:
+ * 필터는 기동 시 한 번만 만들고 바꾸지 않으며, JPA 쓰기는 Hibernate post insert/update 이벤트에서,
+ * StatelessSession 처럼 식별자를 아는 JDBC 쓰기는 OutboxRecorder 가 기록할 때 payload 의 username 으로 커밋 전에 바로 추가한다.
+ * 아직 flush 안 된 persist 와 이름 변경은 조회 쿼리의 auto flush 로 DB 에 보이게 되므로, 세션마다 persist/merge/로딩된 Member 를
+ * 기억해 두었다가 조회할 때 그 Member 들의 현재 username 을 먼저 넣는다. 세션이 닫히면 버린다.
+ * 벌크 연산처럼 엔티티 이벤트 없는 Member 변경은 범위 이벤트가 기록되는 순간부터 필터를 쓰지 않다가(bypass),
+ * 그 변경의 region 무효화를 받아 member 테이블을 다시 훑은 뒤에 다시 사용한다.
+ * 삭제/이름 변경된 username 은 지워지지 않으므로 오탐률은 재기동 전까지 조금씩 오른다.
+ * <p>
+ * 다른 노드의 쓰기는 커밋되고 나서 무효화 묶음이 발행, 도착해야 필터에 들어가므로 버스를 따라잡아도 그 사이의 커밋은 놓친다.
+ * 그래서 InvalidationBus 가 단일 프로세스(loopback, 기본값)일 때만 동작하고, jdbc 버스에서는 기동 스캔과 리스너 등록 없이
+ * 항상 DB 에서 확인한다(UNKNOWN).
+ */
+@Slf4j
+@Component
+public class MemberUsernameFilter implements PostInsertEventListener, PostUpdateEventListener, PostLoadEventListener,
+        PersistEventListener, MergeEventListener, RangeChangeListener, JdbcChangeListener, InvalidationListener {
+
+    public enum Verdict { ABSENT, MAYBE, UNKNOWN }
+
+    private static final String MEMBER_AGGREGATE = Member.class.getSimpleName();
+    private static final String METRIC = "member.username.filter";
+
+    private final EntityManagerFactory emf;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean authoritative;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+
+    private final Counter skipped;
+    private final Counter found;
+    private final Counter falsePositives;
+    private final Counter bypassed;
+
+    private volatile BloomFilter filter;
+    // 커밋 전인 범위 변경 수와 커밋된 범위 변경 수. 마지막 스캔 시점의 커밋 수와 같고 진행 중인 것이 없어야 필터를 믿는다.
+    private final AtomicInteger pendingRanges = new AtomicInteger();
+    private final AtomicLong committedRanges = new AtomicLong();
+    private volatile long scannedRanges = -1;
+    // 세션별로 flush 전에 username 이 DB 와 달라질 수 있는 Member
+    private final Map<SharedSessionContractImplementor, Set<Member>> sessionMembers = new ConcurrentHashMap<>();
+
+    public MemberUsernameFilter(EntityManagerFactory emf,
+                                JdbcTemplate jdbcTemplate,
+                                InvalidationBus invalidationBus,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.username-filter.expected-insertions:1000000}") long expectedInsertions,
+                                @Value("${app.username-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.emf = emf;
+        this.jdbcTemplate = jdbcTemplate;
+        this.authoritative = invalidationBus.singleProcess();
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+
+        this.skipped = lookupCounter(meterRegistry, "skipped");
+        this.found = lookupCounter(meterRegistry, "found");
+        this.falsePositives = lookupCounter(meterRegistry, "false_positive");
+        this.bypassed = lookupCounter(meterRegistry, "bypassed");
+        meterRegistry.gauge(METRIC + ".fpp", List.of(Tag.of("type", "expected")), this,
+                f -> f.filter == null ? 0 : f.filter.expectedFalsePositiveRate());
+        // 실제로 없던 username 중 필터를 통과한 비율
+        meterRegistry.gauge(METRIC + ".fpp", List.of(Tag.of("type", "observed")), this,
+                f -> {
+                    double absent = f.falsePositives.count() + f.skipped.count();
+                    return absent == 0 ? 0 : f.falsePositives.count() / absent;
+                });
+    }
+
+    @PostConstruct
+    public void register() {
+        if (!authoritative) {
+            return;
+        }
+        Long rows = jdbcTemplate.queryForObject("select count(*) from member", Long.class);
+        // 리스너보다 먼저 만들어 두어야 이후의 모든 JPA 쓰기가 필터에 들어간다. 증가분을 위해 현재 건수의 두 배로 잡는다.
+        filter = new BloomFilter(Math.max(expectedInsertions, rows * 2), falsePositiveRate);
+        HibernateEventListeners.append(emf, EventType.POST_INSERT, this);
+        HibernateEventListeners.append(emf, EventType.POST_UPDATE, this);
+        HibernateEventListeners.append(emf, EventType.POST_LOAD, this);
+        HibernateEventListeners.append(emf, EventType.PERSIST, this);
+        HibernateEventListeners.append(emf, EventType.MERGE, this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void scan() {
+        if (!authoritative) {
+            return;
+        }
+        long ranges = committedRanges.get();
+        jdbcTemplate.query("select username from member where username is not null",
+                (RowCallbackHandler) rs -> filter.put(rs.getString(1)));
+        scannedRanges = ranges;
+        log.info("member username filter scanned: {} insertions, {} bits, expected fpp {}",
+                filter.insertions(), filter.bitSize(), String.format("%.4f", filter.expectedFalsePositiveRate()));
+    }
+
+    public Verdict lookup(String username) {
+        if (username == null || !authoritative || !trusted()) {
+            bypassed.increment();
+            return Verdict.UNKNOWN;
+        }
+        addSessionMembers();
+        if (!filter.mightContain(username)) {
+            skipped.increment();
+            return Verdict.ABSENT;
+        }
+        return Verdict.MAYBE;
+    }
+
+    /**
+     * MAYBE 였던 조회의 실제 결과를 기록한다.
+     */
+    public void recordResult(boolean exists) {
+        (exists ? found : falsePositives).increment();
+    }
+
+    public boolean trusted() {
+        return pendingRanges.get() == 0 && scannedRanges == committedRanges.get();
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            add(((Member) event.getEntity()).getUsername());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Member) {
+            add(((Member) event.getEntity()).getUsername());
+        }
+    }
+
+    // 읽기 전용 세션에서 읽은 Member 는 flush 되지 않는다.
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        if (event.getEntity() instanceof Member && !event.getSession().isDefaultReadOnly()) {
+            track(event.getSession(), (Member) event.getEntity());
+        }
+    }
+
+    @Override
+    public void onPersist(PersistEvent event) {
+        if (event.getObject() instanceof Member) {
+            track(event.getSession(), (Member) event.getObject());
+        }
+    }
+
+    @Override
+    public void onPersist(PersistEvent event, Map createdAlready) {
+        onPersist(event);
+    }
+
+    @Override
+    public void onMerge(MergeEvent event) {
+        if (event.getResult() instanceof Member) {
+            track(event.getSession(), (Member) event.getResult());
+        }
+    }
+
+    @Override
+    public void onMerge(MergeEvent event, Map copiedAlready) {
+        onMerge(event);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    @Override
+    public void changeRecorded(String aggregateType, Object id, String eventType, Map<String, Object> payload) {
+        if (MEMBER_AGGREGATE.equals(aggregateType) && payload.get("username") instanceof String) {
+            add((String) payload.get("username"));
+        }
+    }
+
+    @Override
+    public void rangeRecorded(String aggregateType) {
+        if (!authoritative || !MEMBER_AGGREGATE.equals(aggregateType)) {
+            return;
+        }
+        pendingRanges.incrementAndGet();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            // CacheInvalidations 가 이 변경을 묶음에 넣기 전에 committed 를 올려야 그 묶음으로 시작한 scan 이 이 변경을 센다.
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            // pending 을 줄이기 전에 committed 를 올려야 그 사이에 필터를 믿는 구간이 생기지 않는다.
+            @Override
+            public void afterCommit() {
+                committedRanges.incrementAndGet();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                pendingRanges.decrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void invalidate(Invalidation invalidation) {
+        if (!authoritative) {
+            return;
+        }
+        if (invalidation.regionInvalidated(MEMBER_AGGREGATE)) {
+            scan();
+            return;
+        }
+        Set<String> ids = invalidation.ids(MEMBER_AGGREGATE);
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query("select username from member where member_id in (" +
+                        String.join(", ", Collections.nCopies(ids.size(), "?")) + ")",
+                (RowCallbackHandler) rs -> add(rs.getString(1)), ids.stream().map(Long::valueOf).toArray());
+    }
+
+    @Override
+    public boolean receivesOwnChanges() {
+        return true;
+    }
+
+    private void track(SharedSessionContractImplementor session, Member member) {
+        sessionMembers.computeIfAbsent(session, key -> {
+            key.getEventListenerManager().addListener(new BaseSessionEventListener() {
+                @Override
+                public void end() {
+                    sessionMembers.remove(key);
+                }
+            });
+            return Collections.newSetFromMap(new IdentityHashMap<>());
+        }).add(member);
+    }
+
+    // 조회 쿼리의 auto flush 로 보이게 될 username 을 먼저 넣는다. 세션은 한 스레드에서만 쓰인다.
+    private void addSessionMembers() {
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(emf);
+        if (holder == null) {
+            return;
+        }
+        Set<Member> members = sessionMembers.get(holder.getEntityManager().unwrap(SessionImplementor.class));
+        if (members != null) {
+            members.forEach(member -> add(member.getUsername()));
+        }
+    }
+
+    private void add(String username) {
+        if (authoritative && username != null) {
+            filter.put(username);
+        }
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(METRIC)
+                .tag("result", result)
+                .description("@UsernameLookup 조회 결과")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,164 @@
+package study.datajpa.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import study.datajpa.cache.Invalidation;
+import study.datajpa.cache.InvalidationListener;
+import study.datajpa.entity.Member;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * username 접두어 검색용 메모리 색인. (소문자 username, id) 순으로 정렬된 skip list 에서
+ * 접두어 위치를 찾아 limit 개만 읽으므로 전체 건수와 무관하게 O(log n + limit) 이다.
+ * <p>
+ * 기동 시 member 테이블에서 한 번 적재하고 이후에는 캐시 무효화 묶음으로 갱신하므로 커밋 후 flush + poll 주기만큼 늦게 반영된다.
+ * outbox 이벤트는 노드 하나의 relay 만 받으므로 자기 노드의 변경도 묶음으로 받는다.
+ * 바뀐 id 는 DB 에서 username 을 다시 읽고, 벌크 연산 같은 범위(region) 무효화가 오면 새로 적재해 교체한다.
+ * 검색은 잠금 없이 동시에 실행되며 갱신과 재적재는 무효화를 받는 스레드에서 순서대로 일어난다.
+ */
+@Slf4j
+@Component
+public class MemberUsernameIndex implements InvalidationListener {
+
+    private static final String MEMBER_AGGREGATE = Member.class.getSimpleName();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Entries entries = new Entries();
+
+    public MemberUsernameIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        Entries rebuilt = new Entries();
+        jdbcTemplate.query("select member_id, username from member",
+                (RowCallbackHandler) rs -> rebuilt.put(rs.getLong(1), rs.getString(2)));
+        entries = rebuilt;
+        log.info("member username index rebuilt: {} entries", rebuilt.size());
+    }
+
+    /**
+     * username 이 prefix 로 시작하는(대소문자 무시) 회원 id 를 username, id 순으로 최대 limit 개 반환한다.
+     */
+    public List<Long> search(String prefix, int limit) {
+        String key = normalize(prefix);
+        List<Long> ids = new ArrayList<>(limit);
+        for (Entry entry : entries.sorted.tailSet(new Entry(key, Long.MIN_VALUE))) {
+            if (ids.size() == limit || !entry.username.startsWith(key)) {
+                break;
+            }
+            ids.add(entry.id);
+        }
+        return ids;
+    }
+
+    public void put(long id, String username) {
+        entries.put(id, username);
+    }
+
+    public void remove(long id) {
+        entries.remove(id);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized void invalidate(Invalidation invalidation) {
+        if (invalidation.regionInvalidated(MEMBER_AGGREGATE)) {
+            rebuild();
+            return;
+        }
+        Set<String> ids = invalidation.ids(MEMBER_AGGREGATE);
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Set<Long> deleted = new HashSet<>();
+        ids.forEach(id -> deleted.add(Long.valueOf(id)));
+        jdbcTemplate.query("select member_id, username from member where member_id in (" +
+                        String.join(", ", Collections.nCopies(deleted.size(), "?")) + ")",
+                (RowCallbackHandler) rs -> {
+                    long id = rs.getLong(1);
+                    deleted.remove(id);
+                    String username = rs.getString(2);
+                    if (username == null) {
+                        remove(id);
+                    } else {
+                        put(id, username);
+                    }
+                }, deleted.toArray());
+        deleted.forEach(this::remove);
+    }
+
+    @Override
+    public boolean receivesOwnChanges() {
+        return true;
+    }
+
+    private static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    // 같은 id 의 이전 username 을 지우려면 id -> username 역색인이 필요하다.
+    private static class Entries {
+        final ConcurrentSkipListSet<Entry> sorted = new ConcurrentSkipListSet<>();
+        final Map<Long, String> usernames = new ConcurrentHashMap<>();
+
+        void put(long id, String username) {
+            if (username == null) {
+                remove(id);
+                return;
+            }
+            String key = normalize(username);
+            String previous = usernames.put(id, key);
+            if (previous != null && !previous.equals(key)) {
+                sorted.remove(new Entry(previous, id));
+            }
+            sorted.add(new Entry(key, id));
+        }
+
+        void remove(long id) {
+            String previous = usernames.remove(id);
+            if (previous != null) {
+                sorted.remove(new Entry(previous, id));
+            }
+        }
+
+        int size() {
+            return usernames.size();
+        }
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        final String username;
+        final long id;
+
+        Entry(String username, long id) {
+            this.username = username;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = username.compareTo(other.username);
+            return result != 0 ? result : Long.compare(id, other.id);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package study.datajpa.search;
+
+import lombok.RequiredArgsConstructor;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import study.datajpa.repository.UsernameLookup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * @UsernameLookup 메서드를 Bloom filter 로 먼저 거른다.
+ * 리포지토리 프록시 맨 앞(트랜잭션 인터셉터 앞)에 붙여 확실한 miss 는 트랜잭션과 커넥션도 쓰지 않는다.
+ */
+@RequiredArgsConstructor
+public class UsernameLookupInterceptor implements MethodInterceptor {
+
+    private final MemberUsernameFilter filter;
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (!invocation.getMethod().isAnnotationPresent(UsernameLookup.class)) {
+            return invocation.proceed();
+        }
+
+        MemberUsernameFilter.Verdict verdict = filter.lookup((String) invocation.getArguments()[0]);
+        if (verdict == MemberUsernameFilter.Verdict.ABSENT) {
+            return empty(invocation.getMethod().getReturnType());
+        }
+
+        Object result = invocation.proceed();
+        if (verdict == MemberUsernameFilter.Verdict.MAYBE) {
+            filter.recordResult(exists(result));
+        }
+        return result;
+    }
+
+    private static Object empty(Class<?> returnType) {
+        if (Optional.class.equals(returnType)) {
+            return Optional.empty();
+        }
+        if (Collection.class.isAssignableFrom(returnType)) {
+            return new ArrayList<>();
+        }
+        return null;
+    }
+
+    private static boolean exists(Object result) {
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent();
+        }
+        if (result instanceof Collection) {
+            return !((Collection<?>) result).isEmpty();
+        }
+        return result != null;
+    }
+}
@@ -0,0 +1,187 @@
+package study.datajpa.writebehind;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.OutboxEvent;
+import study.datajpa.outbox.OutboxRecorder;
+import study.datajpa.readmodel.MemberViewProjector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 자주 바뀌는 Member.age 증감을 회원 id 별로 메모리에 모았다가 한 번의 배치 update 로 반영한다(write-behind).
+ * 증감은 id 해시로 고른 stripe(ConcurrentHashMap)에 merge 하므로 호출 스레드끼리 전역 락을 잡지 않는다.
+ * flush-interval-ms 마다, 또는 대기 중인 id 가 max-pending 을 넘으면 flush 하고 종료 시에도 flush 한다.
+ *
+ * 내구성: increment() 가 반환된 시점에는 아직 DB 에 없다. flush 전에 프로세스가 죽으면 그 구간의 증감은 유실된다.
+ * flush 트랜잭션이 실패하면 꺼낸 증감을 다시 버퍼에 더해 다음 flush 에서 재시도한다.
+ * 반영은 age = age + ? 이므로 다른 트랜잭션의 쓰기와 섞여도 증감이 덮어써지지 않는다.
+ * 같이 Member.version 을 올리므로 flush 전에 JPA 로 읽어둔 Member 를 저장하면 flush 결과를 덮어쓰지 않고
+ * OptimisticLockingFailureException 이 난다. 그 쪽에서 다시 읽어 재시도한다.
+ * member_view 는 읽기 모델이 켜져 있을 때만(MemberViewProjector 빈이 있을 때) 같은 트랜잭션에서 더한다.
+ */
+@Slf4j
+@Component
+public class MemberAgeWriteBehind implements DisposableBean {
+
+    private static final String ADD_AGE = "update member set age = age + ?, version = version + 1 where member_id = ?";
+    private static final String ADD_VIEW_AGE = "update member_view set age = age + ? where member_id = ?";
+    private static final int STRIPES = 16;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxRecorder outboxRecorder;
+    private final ObjectProvider<MemberViewProjector> memberViewProjector;
+    private final int maxPending;
+
+    private final List<Map<Long, Long>> stripes = new ArrayList<>(STRIPES);
+    private final AtomicInteger pendingIds = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final LongAdder flushedRows = new LongAdder();
+    private final ScheduledExecutorService scheduler;
+
+    public MemberAgeWriteBehind(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                OutboxRecorder outboxRecorder,
+                                ObjectProvider<MemberViewProjector> memberViewProjector,
+                                @Value("${app.write-behind.flush-interval-ms:200}") long flushIntervalMillis,
+                                @Value("${app.write-behind.max-pending:1000}") int maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.outboxRecorder = outboxRecorder;
+        this.memberViewProjector = memberViewProjector;
+        this.maxPending = maxPending;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes.add(new ConcurrentHashMap<>());
+        }
+        // flush 는 항상 이 스레드 하나에서만 실행된다.
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "member-age-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void increment(Long memberId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        add(memberId, delta);
+        if (pendingIds.get() >= maxPending && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::flushQuietly);
+        }
+    }
+
+    public int pending() {
+        return pendingIds.get();
+    }
+
+    public long flushedRows() {
+        return flushedRows.sum();
+    }
+
+    /**
+     * 지금까지 모인 증감을 반영하고 반영한 행 수를 반환한다. flush 스레드에서 실행되며 끝날 때까지 기다린다.
+     */
+    public int flush() {
+        try {
+            return scheduler.submit(this::doFlush).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("write-behind flush interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("write-behind flush failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        // 종료 시점에 남은 증감은 호출 스레드에서 마지막으로 반영한다.
+        int flushed = doFlush();
+        if (flushed > 0) {
+            log.info("flushed {} pending member age updates on shutdown", flushed);
+        }
+    }
+
+    private void add(Long memberId, long delta) {
+        Map<Long, Long> stripe = stripes.get(Math.floorMod(memberId.hashCode(), STRIPES));
+        boolean[] created = new boolean[1];
+        stripe.compute(memberId, (id, current) -> {
+            if (current == null) {
+                created[0] = true;
+                return delta;
+            }
+            return current + delta;
+        });
+        if (created[0]) {
+            pendingIds.incrementAndGet();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            doFlush();
+        } catch (RuntimeException e) {
+            log.warn("member age write-behind flush failed, deltas will be retried", e);
+        }
+    }
+
+    private int doFlush() {
+        flushRequested.set(false);
+        // id 순서로 반영해 다른 flush/트랜잭션과의 교착 가능성을 줄인다.
+        Map<Long, Long> drained = new TreeMap<>();
+        for (Map<Long, Long> stripe : stripes) {
+            for (Long id : stripe.keySet()) {
+                Long delta = stripe.remove(id);
+                if (delta != null) {
+                    pendingIds.decrementAndGet();
+                    if (delta != 0) {
+                        drained.put(id, delta);
+                    }
+                }
+            }
+        }
+        if (drained.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> args = new ArrayList<>(drained.size());
+        drained.forEach((id, delta) -> args.add(new Object[]{delta, id}));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(ADD_AGE, args);
+                if (memberViewProjector.getIfAvailable() != null) {
+                    jdbcTemplate.batchUpdate(ADD_VIEW_AGE, args);
+                }
+                drained.forEach((id, delta) ->
+                        outboxRecorder.record(Member.class, id, OutboxEvent.UPDATE, Map.of("ageDelta", delta)));
+            });
+        } catch (RuntimeException e) {
+            drained.forEach(this::add);
+            throw e;
+        }
+
+        flushedRows.add(drained.size());
+        return drained.size();
+    }
+}
@@ -0,0 +1,70 @@
+package study.datajpa.archive;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRecord;
+import study.datajpa.repository.MemberRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MemberArchiverTest {
+
+    @Autowired MemberArchiver memberArchiver;
+    @Autowired MemberRepository memberRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    Member oldMember;
+    Member newMember;
+
+    @AfterEach
+    public void cleanup() {
+        jdbcTemplate.update("delete from member_archive where member_id = ?", oldMember.getId());
+        memberRepository.findById(oldMember.getId()).ifPresent(memberRepository::delete);
+        memberRepository.deleteById(newMember.getId());
+    }
+
+    @Test
+    public void archiveOlderThan() {
+        //given
+        oldMember = memberRepository.save(new Member("archiveOld", 10));
+        newMember = memberRepository.save(new Member("archiveNew", 10));
+        jdbcTemplate.update("update member set created_date = ? where member_id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusYears(2)), oldMember.getId());
+
+        //when
+        int archived = memberArchiver.archiveOlderThan(LocalDateTime.now().minusYears(1));
+
+        //then
+        assertThat(archived).isEqualTo(1);
+        assertThat(memberRepository.findById(oldMember.getId())).isEmpty();
+        assertThat(memberRepository.findById(newMember.getId())).isPresent();
+        assertThat(memberRepository.findByUsername("archiveOld")).isEmpty();
+
+        List<MemberRecord> records = memberRepository.findByUsernameIncludingArchive("archiveOld");
+        assertThat(records).hasSize(1);
+        assertThat(records.get(0).getId()).isEqualTo(oldMember.getId());
+        assertThat(records.get(0).isArchived()).isTrue();
+
+        Page<MemberRecord> all = memberRepository.findAllIncludingArchive(
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "createdDate")));
+        assertThat(all.getTotalElements()).isEqualTo(memberRepository.count() + 1);
+        assertThat(all.getContent().get(0).getId()).isEqualTo(oldMember.getId());
+
+        Integer outboxEvents = jdbcTemplate.queryForObject(
+                "select count(*) from outbox_event where aggregate_type = 'Member' and aggregate_id = ? and event_type = 'DELETE'",
+                Integer.class, String.valueOf(oldMember.getId()));
+        assertThat(outboxEvents).isEqualTo(1);
+    }
+}
@@ -0,0 +1,86 @@
+package study.datajpa.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.outbox.OutboxRecorder;
+
+import javax.persistence.EntityManager;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 엔티티를 읽어 자바에서 집계하는 작업을 워커 1개와 코어 수(최소 4)로 나눠 실행한 시간 비교.
+ * ./gradlew benchmark 로 실행한다.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class MemberPartitionBenchmarkTest {
+
+    static final String USERNAME = "partitionBench";
+    static final int ROWS = 50_000;
+    static final int ROUNDS = 5;
+
+    @Autowired EntityManager em;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired OutboxRecorder outboxRecorder;
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from member_view where username = ?", USERNAME);
+        jdbcTemplate.update("delete from member where username = ?", USERNAME);
+    }
+
+    @Test
+    public void sequentialVersusPartitioned() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < ROWS; i++) {
+                em.persist(new Member(USERNAME, i % 100));
+                if (i % 1_000 == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+        });
+
+        MemberPartitionExecutor sequential = new MemberPartitionExecutor(em, outboxRecorder, transactionManager, 1);
+        MemberPartitionExecutor partitioned = new MemberPartitionExecutor(em, outboxRecorder, transactionManager,
+                Math.max(4, Runtime.getRuntime().availableProcessors()));
+        BiFunction<EntityManager, MemberIdRange, Long> ageSum = (em, range) -> em.createQuery(
+                        "select m from Member m where m.username = :username and m.id >= :from and m.id < :to", Member.class)
+                .setParameter("username", USERNAME)
+                .setParameter("from", range.getFrom())
+                .setParameter("to", range.getTo())
+                .getResultStream()
+                .mapToLong(Member::getAge)
+                .sum();
+
+        try {
+            for (int i = 0; i <= ROUNDS; i++) {
+                measure(sequential, ageSum);
+                measure(partitioned, ageSum);
+            }
+        } finally {
+            sequential.destroy();
+            partitioned.destroy();
+        }
+    }
+
+    private void measure(MemberPartitionExecutor executor, BiFunction<EntityManager, MemberIdRange, Long> task) {
+        long start = System.nanoTime();
+        long sum = executor.aggregate(task, 0L, Long::sum);
+        long elapsed = System.nanoTime() - start;
+
+        assertThat(sum).isEqualTo((long) ROWS / 100 * 4950);
+        System.out.printf("parallelism %2d (cores %d)  %,6d ms%n",
+                executor.getParallelism(), Runtime.getRuntime().availableProcessors(), elapsed / 1_000_000);
+    }
+}
@@ -0,0 +1,136 @@
+package study.datajpa.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.outbox.ChangeVersions;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class MemberPartitionExecutorTest {
+
+    static final String USERNAME = "partitioned";
+    static final String IN_RANGE = " m.id >= :from and m.id < :to";
+
+    @Autowired MemberPartitionExecutor partitionExecutor;
+    @Autowired MemberRepository memberRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired ChangeVersions changeVersions;
+
+    @BeforeEach
+    public void setUp() {
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            members.add(new Member(USERNAME, i % 10));
+        }
+        memberRepository.saveAll(members);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from member_view where username = ?", USERNAME);
+        jdbcTemplate.update("delete from member where username = ?", USERNAME);
+    }
+
+    @Test
+    public void 현재_id_범위를_빈틈없이_나눈다() {
+        //when
+        List<MemberIdRange> ranges = partitionExecutor.split();
+
+        //then
+        assertThat(ranges).isNotEmpty();
+        for (int i = 1; i < ranges.size(); i++) {
+            assertThat(ranges.get(i).getFrom()).isEqualTo(ranges.get(i - 1).getTo());
+        }
+        Long max = jdbcTemplate.queryForObject("select max(member_id) from member", Long.class);
+        assertThat(ranges.get(ranges.size() - 1).getTo()).isEqualTo(max + 1);
+    }
+
+    @Test
+    public void 구간별_결과를_합친다() {
+        //when
+        long ageSum = partitionExecutor.aggregate((em, range) -> em.createQuery(
+                        "select coalesce(sum(m.age), 0) from Member m where m.username = :username and" + IN_RANGE, Long.class)
+                .setParameter("username", USERNAME)
+                .setParameter("from", range.getFrom())
+                .setParameter("to", range.getTo())
+                .getSingleResult(), 0L, Long::sum);
+
+        //then
+        assertThat(ageSum).isEqualTo(30 * 45);
+    }
+
+    @Test
+    public void 구간별로_갱신하고_작업마다_범위_이벤트를_하나_남긴다() {
+        //given
+        long unaudited = changeVersions.unauditedVersion(Member.class);
+        Integer eventsBefore = rangeEvents();
+
+        //when
+        PartitionUpdateResult result = partitionExecutor.update((em, range) -> em.createQuery(
+                        "update Member m set m.age = m.age + 100 where m.username = :username and" + IN_RANGE)
+                .setParameter("username", USERNAME)
+                .setParameter("from", range.getFrom())
+                .setParameter("to", range.getTo())
+                .executeUpdate());
+
+        //then
+        assertThat(result.hasFailures()).isFalse();
+        assertThat(result.totalRows()).isEqualTo(300);
+        Integer belowHundred = jdbcTemplate.queryForObject(
+                "select count(*) from member where username = ? and age < 100", Integer.class, USERNAME);
+        assertThat(belowHundred).isZero();
+        assertThat(rangeEvents()).isEqualTo(eventsBefore + 1);
+        assertThat(changeVersions.unauditedVersion(Member.class)).isGreaterThan(unaudited);
+    }
+
+    @Test
+    public void 실패한_구간을_보고하고_나머지_구간은_커밋한다() {
+        //given 마지막 구간(가장 큰 id)은 이 테스트가 넣은 회원을 포함한다
+        List<MemberIdRange> ranges = partitionExecutor.split();
+        MemberIdRange failing = ranges.get(ranges.size() - 1);
+
+        //when
+        PartitionUpdateResult result = partitionExecutor.update((em, range) -> {
+            int rows = em.createQuery("update Member m set m.age = m.age + 100 where m.username = :username and" + IN_RANGE)
+                    .setParameter("username", USERNAME)
+                    .setParameter("from", range.getFrom())
+                    .setParameter("to", range.getTo())
+                    .executeUpdate();
+            if (range.equals(failing)) {
+                throw new IllegalStateException("boom");
+            }
+            return rows;
+        });
+
+        //then
+        assertThat(result.getFailures()).containsOnlyKeys(failing);
+        assertThat(result.getFailures().get(failing)).hasMessage("boom");
+        assertThat(result.getUpdatedRows()).doesNotContainKey(failing);
+        Integer committed = jdbcTemplate.queryForObject(
+                "select count(*) from member where username = ? and age >= 100", Integer.class, USERNAME);
+        assertThat(committed).isEqualTo(result.totalRows()).isLessThan(300);
+    }
+
+    @Test
+    public void 실패한_구간의_예외를_전파한다() {
+        assertThatThrownBy(() -> partitionExecutor.aggregate((em, range) -> {
+            throw new IllegalStateException("boom");
+        }, 0L, Long::sum)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private Integer rangeEvents() {
+        return jdbcTemplate.queryForObject("select count(*) from outbox_event " +
+                "where aggregate_type = 'Member' and aggregate_id is null and payload like '%partitionFrom%'", Integer.class);
+    }
+}
@@ -0,0 +1,145 @@
+package study.datajpa.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.datajpa.entity.Item;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class StatelessBatchProcessorTest {
+
+    static final String USERNAME = "statelessBatch";
+    static final String QUERY = "select m from Member m where m.username = :username order by m.id";
+
+    @Autowired StatelessBatchProcessor batchProcessor;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            members.add(new Member(USERNAME, 1));
+        }
+        memberRepository.saveAll(members);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from item where id like 'stateless-%'");
+        jdbcTemplate.update("delete from member_view where username = ?", USERNAME);
+        jdbcTemplate.update("delete from member where username = ?", USERNAME);
+        jdbcTemplate.update("delete from team where name like 'statelessTeam%'");
+    }
+
+    @Test
+    public void 청크_단위로_처리하고_쓴_회원마다_outbox_이벤트를_남긴다() {
+        //given
+        int rangeEventsBefore = events("Member", true);
+        int memberEventsBefore = events("Member", false);
+
+        //when
+        long rows = batchProcessor.process(QUERY, Map.of("username", USERNAME), Member.class, 50, (member, writer) -> {
+            member.setAge(member.getAge() + 1);
+            writer.update(member);
+        });
+
+        //then
+        assertThat(rows).isEqualTo(120);
+        assertThat(agesOf(2)).isEqualTo(120);
+        assertThat(events("Member", false) - memberEventsBefore).isEqualTo(120);
+        assertThat(events("Member", true)).isEqualTo(rangeEventsBefore);
+        Integer viewAges = jdbcTemplate.queryForObject(
+                "select count(*) from member_view where username = ? and age = 2", Integer.class, USERNAME);
+        assertThat(viewAges).isEqualTo(120);
+    }
+
+    @Test
+    public void 실패한_청크만_롤백한다() {
+        //when
+        int[] seen = {0};
+        assertThatThrownBy(() -> batchProcessor.process(QUERY, Map.of("username", USERNAME), Member.class, 50, (member, writer) -> {
+            if (++seen[0] == 110) {
+                throw new IllegalStateException("boom");
+            }
+            member.setAge(2);
+            writer.update(member);
+        })).isInstanceOf(IllegalStateException.class);
+
+        //then 앞의 두 청크는 커밋되고 실패한 세 번째 청크만 롤백된다.
+        assertThat(agesOf(2)).isEqualTo(100);
+        assertThat(agesOf(1)).isEqualTo(20);
+    }
+
+    @Test
+    public void insert_는_감사_필드를_채우고_이벤트를_남긴다() {
+        //given
+        int itemEventsBefore = events("Item", false);
+
+        //when
+        batchProcessor.process(QUERY, Map.of("username", USERNAME), Member.class, 50,
+                (member, writer) -> writer.insert(new Item("stateless-" + member.getId())));
+
+        //then
+        Integer audited = jdbcTemplate.queryForObject(
+                "select count(*) from item where id like 'stateless-%' and created_date is not null", Integer.class);
+        assertThat(audited).isEqualTo(120);
+        assertThat(events("Item", false) - itemEventsBefore).isEqualTo(120);
+    }
+
+    @Test
+    public void 회원을_쓴_청크의_옛_팀과_새_팀만_다시_센다() {
+        //given 일부러 틀어둔 다른 팀의 member_count 는 건드리지 않아야 한다
+        Team from = teamRepository.save(new Team("statelessTeamFrom"));
+        Team to = teamRepository.save(new Team("statelessTeamTo"));
+        Team other = teamRepository.save(new Team("statelessTeamOther"));
+        jdbcTemplate.update("update member set team_id = ? where username = ?", from.getId(), USERNAME);
+        jdbcTemplate.update("update team set member_count = 120 where team_id = ?", from.getId());
+        jdbcTemplate.update("update team set member_count = 7 where team_id = ?", other.getId());
+        int teamRangeEventsBefore = events("Team", true);
+
+        //when
+        batchProcessor.process(QUERY, Map.of("username", USERNAME), Member.class, 50, (member, writer) -> {
+            if (member.getId() % 2 == 0) {
+                member.setTeam(to);
+                writer.update(member);
+            }
+        });
+
+        //then
+        assertThat(memberCount(from) + memberCount(to)).isEqualTo(120);
+        assertThat(memberCount(to)).isEqualTo(jdbcTemplate.queryForObject(
+                "select count(*) from member where team_id = ?", Integer.class, to.getId()));
+        assertThat(memberCount(other)).isEqualTo(7);
+        assertThat(events("Team", true)).isEqualTo(teamRangeEventsBefore);
+    }
+
+    private int memberCount(Team team) {
+        return jdbcTemplate.queryForObject("select member_count from team where team_id = ?", Integer.class, team.getId());
+    }
+
+    private int agesOf(int age) {
+        return jdbcTemplate.queryForObject("select count(*) from member where username = ? and age = ?",
+                Integer.class, USERNAME, age);
+    }
+
+    private int events(String aggregateType, boolean range) {
+        return jdbcTemplate.queryForObject("select count(*) from outbox_event where aggregate_type = ? and aggregate_id is " +
+                (range ? "null" : "not null"), Integer.class, aggregateType);
+    }
+}
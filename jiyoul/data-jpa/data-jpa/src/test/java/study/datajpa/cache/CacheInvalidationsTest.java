@@ -0,0 +1,118 @@
+package study.datajpa.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheInvalidationsTest {
+
+    LoopbackInvalidationBus bus = new LoopbackInvalidationBus();
+
+    @Test
+    public void 모인_변경을_묶음_하나로_다른_노드에만_보낸다() {
+        List<Invalidation> receivedByA = new ArrayList<>();
+        List<Invalidation> receivedByB = new ArrayList<>();
+        CacheInvalidations nodeA = node("a", receivedByA, 500);
+        node("b", receivedByB, 500);
+
+        //when
+        nodeA.entityChanged("Member", 1L);
+        nodeA.entityChanged("Member", 2L);
+        nodeA.entityChanged("Member", 1L);
+        nodeA.entityChanged("Team", 10L);
+        nodeA.regionChanged("Team");
+        nodeA.flush();
+        nodeA.flush(); //보낼 것이 없으면 보내지 않는다
+
+        //then
+        assertThat(receivedByA).isEmpty();
+        assertThat(receivedByB).hasSize(1);
+        Invalidation invalidation = receivedByB.get(0);
+        assertThat(invalidation.getOrigin()).isEqualTo("a");
+        assertThat(invalidation.ids("Member")).containsExactlyInAnyOrder("1", "2");
+        assertThat(invalidation.regionInvalidated("Team")).isTrue();
+        assertThat(invalidation.getEntityIds()).doesNotContainKey("Team");
+    }
+
+    @Test
+    public void 자기_노드의_묶음은_자기_변경을_받겠다는_리스너에게만_전달한다() {
+        List<Invalidation> received = new ArrayList<>();
+        List<Invalidation> receivedOwn = new ArrayList<>();
+        InvalidationListener otherNodesOnly = received::add;
+        InvalidationListener ownToo = new InvalidationListener() {
+            @Override
+            public void invalidate(Invalidation invalidation) {
+                receivedOwn.add(invalidation);
+            }
+
+            @Override
+            public boolean receivesOwnChanges() {
+                return true;
+            }
+        };
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("otherNodesOnly", otherNodesOnly, "ownToo", ownToo));
+        CacheInvalidations nodeA = new CacheInvalidations(bus, beanFactory.getBeanProvider(InvalidationListener.class), "a", 500);
+
+        //when
+        nodeA.entityChanged("Member", 1L);
+        nodeA.flush();
+
+        //then
+        assertThat(received).isEmpty();
+        assertThat(receivedOwn).hasSize(1);
+        assertThat(receivedOwn.get(0).ids("Member")).containsExactly("1");
+    }
+
+    @Test
+    public void 식별자가_많으면_타입_전체_무효화로_바꾼다() {
+        List<Invalidation> receivedByB = new ArrayList<>();
+        CacheInvalidations nodeA = node("a", new ArrayList<>(), 3);
+        node("b", receivedByB, 3);
+
+        for (long id = 0; id < 4; id++) {
+            nodeA.entityChanged("Member", id);
+        }
+        nodeA.entityChanged("Member", 99L);
+        nodeA.flush();
+
+        Invalidation invalidation = receivedByB.get(0);
+        assertThat(invalidation.regionInvalidated("Member")).isTrue();
+        assertThat(invalidation.ids("Member")).isEmpty();
+    }
+
+    @Test
+    public void 보내지_못한_변경은_다음_flush_에_다시_보낸다() {
+        List<Invalidation> published = new ArrayList<>();
+        boolean[] fail = {true};
+        InvalidationBus flakyBus = new LoopbackInvalidationBus() {
+            @Override
+            public void publish(Invalidation invalidation) {
+                if (fail[0]) {
+                    throw new IllegalStateException("bus down");
+                }
+                published.add(invalidation);
+            }
+        };
+        CacheInvalidations node = new CacheInvalidations(flakyBus, new StaticListableBeanFactory().getBeanProvider(InvalidationListener.class), "a", 500);
+
+        node.entityChanged("Member", 1L);
+        node.flush();
+        node.entityChanged("Member", 2L);
+        fail[0] = false;
+        node.flush();
+
+        assertThat(published).hasSize(1);
+        assertThat(published.get(0).ids("Member")).containsExactlyInAnyOrder("1", "2");
+    }
+
+    private CacheInvalidations node(String nodeId, List<Invalidation> received, int maxIdsPerType) {
+        InvalidationListener listener = received::add;
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("listener", listener));
+        return new CacheInvalidations(bus, beanFactory.getBeanProvider(InvalidationListener.class), nodeId, maxIdsPerType);
+    }
+}
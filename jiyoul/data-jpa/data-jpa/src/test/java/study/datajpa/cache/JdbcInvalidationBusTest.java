@@ -0,0 +1,131 @@
+package study.datajpa.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.OutboxEvent;
+import study.datajpa.outbox.ChangeVersions;
+import study.datajpa.outbox.OutboxRecorder;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.search.MemberUsernameFilter;
+import study.datajpa.search.MemberUsernameIndex;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 설정이 다른 컨텍스트가 공유 DB 의 스키마와 시퀀스를 다시 만들면 다른 컨텍스트의 id 할당이 겹치므로 DB 를 따로 쓴다.
+@SpringBootTest(properties = {"app.invalidation.bus=jdbc", "spring.datasource.url=jdbc:h2:mem:jdbc-invalidation-bus"})
+class JdbcInvalidationBusTest {
+
+    static final String OTHER_NODE = "other-node";
+
+    @Autowired JdbcInvalidationBus bus;
+    @Autowired CacheInvalidations cacheInvalidations;
+    @Autowired MemberDtoCache memberDtoCache;
+    @Autowired ChangeVersions changeVersions;
+    @Autowired MemberUsernameIndex usernameIndex;
+    @Autowired MemberUsernameFilter usernameFilter;
+    @Autowired MemberRepository memberRepository;
+    @Autowired OutboxRecorder outboxRecorder;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired ObjectMapper objectMapper;
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from member_view where username like 'inval%'");
+        jdbcTemplate.update("delete from member where username like 'inval%'");
+        jdbcTemplate.update("delete from cache_invalidation where origin = ?", OTHER_NODE);
+    }
+
+    @Test
+    public void 다른_노드의_변경을_받아_캐시와_색인을_갱신한다() throws Exception {
+        //given
+        Long id = memberRepository.save(new Member("inval1", 10)).getId();
+        memberDtoCache.getMember(id, () -> Optional.of(new MemberDto(id, "inval1", null)));
+        long unaudited = changeVersions.unauditedVersion(Member.class);
+        bus.poll(); //기동 직후라면 여기서 읽기 시작 위치를 잡는다
+
+        //when: 다른 노드가 username 을 바꾸고 무효화를 보냈다
+        jdbcTemplate.update("update member set username = 'inval2' where member_id = ?", id);
+        Invalidation invalidation = new Invalidation(OTHER_NODE, Map.of("Member", Set.of(String.valueOf(id))), Set.of());
+        jdbcTemplate.update("insert into cache_invalidation (origin, payload, created_date) values (?, ?, ?)",
+                OTHER_NODE, objectMapper.writeValueAsString(invalidation), Timestamp.valueOf(LocalDateTime.now()));
+        bus.poll();
+
+        //then
+        assertThat(memberDtoCache.getMember(id, () -> Optional.of(new MemberDto(id, "inval2", null))))
+                .map(MemberDto::getUsername).contains("inval2");
+        assertThat(changeVersions.unauditedVersion(Member.class)).isGreaterThan(unaudited);
+        assertThat(usernameIndex.search("inval2", 10)).contains(id);
+        assertThat(usernameIndex.search("inval1", 10)).doesNotContain(id);
+        assertThat(usernameFilter.lookup("inval2")).isNotEqualTo(MemberUsernameFilter.Verdict.ABSENT);
+    }
+
+    @Test
+    public void 다른_노드가_relay_한_이_노드의_JDBC_변경도_묶음으로_받는다() {
+        //given
+        Long id = memberRepository.save(new Member("inval5", 10)).getId();
+        memberDtoCache.getMember(id, () -> Optional.of(new MemberDto(id, "inval5", null)));
+        bus.poll();
+
+        //when outbox 이벤트는 다른 노드의 relay 가 가져갔다고 보고, 이 노드는 무효화 묶음만 받는다
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("update member set username = 'inval6' where member_id = ?", id);
+            outboxRecorder.record(Member.class, id, OutboxEvent.UPDATE, Map.of("username", "inval6"));
+        });
+        cacheInvalidations.flush();
+        bus.poll();
+
+        //then
+        assertThat(usernameIndex.search("inval6", 10)).containsExactly(id);
+        assertThat(memberDtoCache.getMember(id, Optional::empty)).isEmpty();
+    }
+
+    @Test
+    public void 여러_노드로_실행하면_필터는_없다고_답하지_않는다() {
+        assertThat(usernameFilter.lookup("invalNobody")).isEqualTo(MemberUsernameFilter.Verdict.UNKNOWN);
+        assertThat(memberRepository.findOptionalByUsername("invalNobody")).isEmpty();
+    }
+
+    @Test
+    public void 커밋된_변경만_이_노드의_묶음으로_테이블에_보낸다() throws Exception {
+        //when
+        Long committed = memberRepository.save(new Member("inval3", 10)).getId();
+        Long rolledBack = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return memberRepository.saveAndFlush(new Member("inval4", 10)).getId();
+        });
+        cacheInvalidations.flush();
+
+        //then
+        List<Invalidation> published = jdbcTemplate.queryForList(
+                        "select payload from cache_invalidation where origin = ?", String.class, cacheInvalidations.nodeId())
+                .stream()
+                .map(payload -> {
+                    try {
+                        return objectMapper.readValue(payload, Invalidation.class);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .collect(Collectors.toList());
+        Set<String> memberIds = published.stream()
+                .flatMap(invalidation -> invalidation.ids("Member").stream())
+                .collect(Collectors.toSet());
+        assertThat(memberIds).contains(String.valueOf(committed)).doesNotContain(String.valueOf(rolledBack));
+    }
+}
@@ -0,0 +1,65 @@
+package study.datajpa.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MemberDtoCacheInvalidatorTest {
+
+    @Autowired MemberDtoCache memberDtoCache;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired CacheInvalidations cacheInvalidations;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from member_view where username like 'dto%'");
+        jdbcTemplate.update("delete from member where username like 'dto%'");
+        jdbcTemplate.update("delete from team where name like 'dto%'");
+        cacheInvalidations.flush();
+    }
+
+    @Test
+    public void 팀_이름이_바뀌면_그_팀_회원의_행만_비운다() {
+        //given
+        Team teamA = teamRepository.save(new Team("dtoTeamA"));
+        Team teamB = teamRepository.save(new Team("dtoTeamB"));
+        Long memberA = memberRepository.save(new Member("dtoMemberA", 10, teamA)).getId();
+        Long memberB = memberRepository.save(new Member("dtoMemberB", 10, teamB)).getId();
+        cacheInvalidations.flush();
+        memberDtoCache.getMember(memberA, () -> Optional.of(new MemberDto(memberA, "dtoMemberA", "dtoTeamA")));
+        memberDtoCache.getMember(memberB, () -> Optional.of(new MemberDto(memberB, "dtoMemberB", "dtoTeamB")));
+
+        //when 새 팀 추가는 행을 비우지 않는다
+        teamRepository.save(new Team("dtoTeamC"));
+        cacheInvalidations.flush();
+
+        //then
+        assertThat(memberDtoCache.getMember(memberA, Optional::empty)).isPresent();
+        assertThat(memberDtoCache.getMember(memberB, Optional::empty)).isPresent();
+
+        //when
+        transactionTemplate.executeWithoutResult(status ->
+                teamRepository.findById(teamA.getId()).get().setName("dtoTeamA2"));
+        cacheInvalidations.flush();
+
+        //then
+        assertThat(memberDtoCache.getMember(memberA, Optional::empty)).isEmpty();
+        assertThat(memberDtoCache.getMember(memberB, Optional::empty)).isPresent();
+    }
+}
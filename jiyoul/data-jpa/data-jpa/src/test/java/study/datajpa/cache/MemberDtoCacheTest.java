@@ -0,0 +1,237 @@
+package study.datajpa.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import study.datajpa.dto.MemberDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemberDtoCacheTest {
+
+    @Test
+    public void 페이지와_행을_오프힙에서_복원한다() {
+        //given
+        MemberDtoCache cache = new MemberDtoCache(1024 * 1024);
+        PageRequest pageRequest = PageRequest.of(0, 2);
+        AtomicInteger loads = new AtomicInteger();
+
+        //when
+        cache.getPage(pageRequest, () -> {
+            loads.incrementAndGet();
+            return new PageImpl<>(Arrays.asList(new MemberDto(1L, "회원1", "teamA"), new MemberDto(2L, "member2", null)), pageRequest, 5);
+        });
+        Page<MemberDto> cached = cache.getPage(pageRequest, () -> {
+            loads.incrementAndGet();
+            return Page.empty();
+        });
+        Optional<MemberDto> row = cache.getMember(1L, Optional::empty);
+
+        //then
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cached.getTotalElements()).isEqualTo(5);
+        assertThat(cached.getContent()).containsExactly(new MemberDto(1L, "회원1", "teamA"), new MemberDto(2L, "member2", null));
+        assertThat(row).contains(new MemberDto(1L, "회원1", "teamA"));
+    }
+
+    @Test
+    public void 여러건_조회는_캐시에_없는_id_만_로딩하고_순서를_지킨다() {
+        //given
+        MemberDtoCache cache = new MemberDtoCache(1024 * 1024);
+        cache.getMember(2L, () -> Optional.of(new MemberDto(2L, "member2", null)));
+        List<List<Long>> loaded = new ArrayList<>();
+
+        //when
+        List<MemberDto> members = cache.getMembers(Arrays.asList(3L, 2L, 99L, 1L), ids -> {
+            loaded.add(ids);
+            return Arrays.asList(new MemberDto(1L, "member1", null), new MemberDto(3L, "member3", "teamA"));
+        });
+
+        //then
+        assertThat(loaded).containsExactly(Arrays.asList(3L, 99L, 1L));
+        assertThat(members).extracting(MemberDto::getId).containsExactly(3L, 2L, 1L);
+        assertThat(cache.getMember(3L, Optional::empty)).contains(new MemberDto(3L, "member3", "teamA"));
+    }
+
+    @Test
+    public void 멤버_무효화시_페이지도_다시_읽는다() {
+        MemberDtoCache cache = new MemberDtoCache(1024 * 1024);
+        PageRequest pageRequest = PageRequest.of(0, 1);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Page<MemberDto>> loader = () -> {
+            loads.incrementAndGet();
+            return new PageImpl<>(Arrays.asList(new MemberDto(1L, "member1", null)), pageRequest, 1);
+        };
+        cache.getPage(pageRequest, loader);
+
+        cache.evictMember(1L);
+
+        assertThat(cache.getMember(1L, Optional::empty)).isEmpty();
+        cache.getPage(pageRequest, loader);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void 팀_추가나_팀_변경은_행을_비우지_않는다() {
+        //given
+        MemberDtoCache cache = new MemberDtoCache(1024 * 1024);
+        cache.getMember(1L, () -> Optional.of(new MemberDto(1L, "member1", "teamA")));
+
+        //when
+        cache.invalidate(new Invalidation("other", Map.of("Team", Set.of("1", "2")), Set.of()));
+
+        //then
+        assertThat(cache.getMember(1L, Optional::empty)).isPresent();
+    }
+
+    @Test
+    public void 팀_이름이_바뀌면_그_팀의_행만_비운다() {
+        //given
+        MemberDtoCache cache = new MemberDtoCache(1024 * 1024);
+        cache.getMember(1L, () -> Optional.of(new MemberDto(1L, "member1", "teamA")));
+        cache.getMember(2L, () -> Optional.of(new MemberDto(2L, "member2", "teamB")));
+        cache.getMember(3L, () -> Optional.of(new MemberDto(3L, "member3", null)));
+
+        //when
+        cache.invalidate(new Invalidation("other", Map.of(MemberDtoCache.TEAM_NAME, Set.of("teamA")), Set.of()));
+
+        //then
+        assertThat(cache.getMember(1L, Optional::empty)).isEmpty();
+        assertThat(cache.getMember(2L, Optional::empty)).isPresent();
+        assertThat(cache.getMember(3L, Optional::empty)).isPresent();
+    }
+
+    @Test
+    public void 로딩_중에_팀_이름이_바뀐_행은_캐시에_넣지_않는다() {
+        //given
+        MemberDtoCache cache = new MemberDtoCache(1024 * 1024);
+
+        //when
+        cache.getMember(1L, () -> {
+            cache.evictTeams(Set.of("teamA"));
+            return Optional.of(new MemberDto(1L, "member1", "teamA"));
+        });
+        cache.getMember(2L, () -> {
+            cache.evictTeams(Set.of("teamA"));
+            return Optional.of(new MemberDto(2L, "member2", "teamB"));
+        });
+
+        //then
+        assertThat(cache.getMember(1L, Optional::empty)).isEmpty();
+        assertThat(cache.getMember(2L, Optional::empty)).isPresent();
+    }
+
+    @Test
+    public void 헤더보다_작은_블록은_쓸_수_없다() {
+        assertThatThrownBy(() -> new OffHeapCache(1024, 8)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void 예산을_넘으면_가장_오래_안쓴_항목부터_축출한다() {
+        //given 64바이트 블록 4개. 헤더와 key 를 합쳐 항목마다 2블록을 쓴다
+        OffHeapCache cache = new OffHeapCache(256, 64);
+        cache.put("a", 100, buffer -> buffer.put(new byte[100]));
+        cache.put("b", 100, buffer -> buffer.put(new byte[100]));
+        cache.get("a");
+
+        //when
+        cache.put("c", 100, buffer -> buffer.put(new byte[100]));
+
+        //then
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isNotNull();
+        assertThat(cache.usedBytes()).isEqualTo(256);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void 여러_블록에_걸친_값을_그대로_읽고_지운_블록을_다시_쓴다() {
+        //given
+        OffHeapCache cache = new OffHeapCache(1024, 16);
+        byte[] value = new byte[300];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = (byte) i;
+        }
+
+        //when
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, value.length, buffer -> buffer.put(value));
+            cache.remove("key" + (i - 1));
+        }
+
+        //then
+        byte[] read = new byte[value.length];
+        cache.get("key99").get(read);
+        assertThat(read).isEqualTo(value);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.usedBytes()).isLessThanOrEqualTo(1024);
+    }
+
+    @Test
+    public void 로딩_중에_무효화된_행은_캐시에_넣지_않는다() {
+        //given
+        MemberDtoCache cache = new MemberDtoCache(1024 * 1024);
+
+        //when 커밋 전 값을 읽은 뒤 afterCommit 무효화가 먼저 끝났다
+        cache.getMember(1L, () -> {
+            cache.evictMember(1L);
+            return Optional.of(new MemberDto(1L, "before", null));
+        });
+
+        //then
+        assertThat(cache.getMember(1L, () -> Optional.of(new MemberDto(1L, "after", null))))
+                .map(MemberDto::getUsername).contains("after");
+        assertThat(cache.getMember(1L, Optional::empty)).map(MemberDto::getUsername).contains("after");
+    }
+
+    @Test
+    public void 로딩_중에_무효화된_페이지는_캐시에_넣지_않는다() {
+        //given
+        MemberDtoCache cache = new MemberDtoCache(1024 * 1024);
+        PageRequest pageRequest = PageRequest.of(0, 1);
+
+        AtomicInteger loads = new AtomicInteger();
+
+        //when
+        cache.getPage(pageRequest, () -> {
+            loads.incrementAndGet();
+            cache.evictMember(2L);
+            return new PageImpl<>(Arrays.asList(new MemberDto(1L, "member1", null)), pageRequest, 1);
+        });
+        cache.getPage(pageRequest, () -> {
+            loads.incrementAndGet();
+            return new PageImpl<>(Arrays.asList(new MemberDto(1L, "member1", null)), pageRequest, 1);
+        });
+
+        //then
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.getMember(1L, Optional::empty)).isPresent();
+    }
+
+    @Test
+    public void 다른_키가_무효화되면_읽은_행을_그대로_넣는다() {
+        //given
+        MemberDtoCache cache = new MemberDtoCache(1024 * 1024);
+
+        //when
+        cache.getMember(1L, () -> {
+            cache.invalidate(new Invalidation("other", Map.of("Member", Set.of("2")), Set.of()));
+            return Optional.of(new MemberDto(1L, "member1", null));
+        });
+
+        //then
+        assertThat(cache.getMember(1L, Optional::empty)).isPresent();
+    }
+}
@@ -0,0 +1,91 @@
+package study.datajpa.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+class ConditionalGetInterceptorTest {
+
+    @Autowired WebApplicationContext context;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    MockMvc mockMvc;
+    Member member;
+
+    // @AutoConfigureMockMvc 는 컨텍스트를 새로 띄워 ddl-auto 로 스키마와 시퀀스를 다시 만든다. 공유 컨텍스트를 그대로 쓴다.
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        memberRepository.deleteById(member.getId());
+    }
+
+    @Test
+    public void 변경이_없으면_304() throws Exception {
+        //given
+        member = memberRepository.save(new Member("etag1", 10));
+        String url = "/members3/" + member.getId();
+        String etag = mockMvc.perform(get(url)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String listEtag = mockMvc.perform(get("/members?size=5")).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        //when, then
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+        mockMvc.perform(get("/members?size=5").header(HttpHeaders.IF_NONE_MATCH, listEtag)).andExpect(status().isNotModified());
+        mockMvc.perform(get("/members?size=6").header(HttpHeaders.IF_NONE_MATCH, listEtag)).andExpect(status().isOk());
+
+        //회원이 바뀌면 단건, 목록 모두 새로 응답한다
+        transactionTemplate.executeWithoutResult(status ->
+                memberRepository.findById(member.getId()).get().setUsername("etag2"));
+
+        String changedEtag = mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(changedEtag).isNotEqualTo(etag);
+        mockMvc.perform(get("/members?size=5").header(HttpHeaders.IF_NONE_MATCH, listEtag)).andExpect(status().isOk());
+    }
+
+    @Test
+    public void 해시코드가_같은_쿼리도_목록_ETag_가_다르다() throws Exception {
+        //given "Aa" 와 "BB" 는 String.hashCode 가 같다
+        member = memberRepository.save(new Member("etag4", 10));
+        String etag = mockMvc.perform(get("/members?size=5&tag=Aa")).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        //when, then
+        mockMvc.perform(get("/members?size=5&tag=BB").header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isOk());
+    }
+
+    @Test
+    public void 벌크_연산도_단건_ETag_를_바꾼다() throws Exception {
+        //given
+        member = memberRepository.save(new Member("etag3", 10));
+        String url = "/members3/" + member.getId();
+        String etag = mockMvc.perform(get(url)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        //when
+        transactionTemplate.executeWithoutResult(status -> memberRepository.bulkAgePlus(1_000));
+
+        //then
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isOk());
+    }
+}
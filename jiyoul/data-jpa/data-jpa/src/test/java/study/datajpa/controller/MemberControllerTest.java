@@ -0,0 +1,65 @@
+package study.datajpa.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+class MemberControllerTest {
+
+    @Autowired WebApplicationContext context;
+    @Autowired MemberRepository memberRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from member_view where username = 'controllerMember'");
+        jdbcTemplate.update("delete from member where username = 'controllerMember'");
+    }
+
+    @Test
+    public void 로더로_조회한_회원은_비동기로_응답한다() throws Exception {
+        //given
+        Long id = memberRepository.save(new Member("controllerMember", 10)).getId();
+
+        for (String url : new String[]{"/members1/", "/members2/"}) {
+            //when 요청 스레드는 로더를 기다리지 않고 비동기 처리로 넘긴다
+            MvcResult result = mockMvc.perform(get(url + id)).andExpect(request().asyncStarted()).andReturn();
+
+            //then
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string("controllerMember"));
+        }
+    }
+
+    @Test
+    public void 없는_회원은_404() throws Exception {
+        for (String url : new String[]{"/members1/", "/members2/"}) {
+            MvcResult result = mockMvc.perform(get(url + Long.MAX_VALUE)).andExpect(request().asyncStarted()).andReturn();
+            mockMvc.perform(asyncDispatch(result)).andExpect(status().isNotFound());
+        }
+    }
+}
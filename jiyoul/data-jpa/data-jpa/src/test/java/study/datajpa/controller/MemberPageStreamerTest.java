@@ -0,0 +1,54 @@
+package study.datajpa.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.web.server.ResponseStatusException;
+import study.datajpa.repository.MemberRepository;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class MemberPageStreamerTest {
+
+    @Autowired MemberPageStreamer memberPageStreamer;
+    @Autowired MemberRepository memberRepository;
+    @Autowired ObjectMapper objectMapper;
+
+    @Test
+    public void 페이지를_스트리밍한다() throws Exception {
+        //given
+        PageRequest pageRequest = PageRequest.of(1, 3, Sort.by(Sort.Direction.DESC, "username"));
+
+        //when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        memberPageStreamer.stream(pageRequest).writeTo(out);
+
+        //then
+        JsonNode json = objectMapper.readTree(out.toByteArray());
+        long total = memberRepository.count();
+        assertThat(json.get("page").asInt()).isEqualTo(1);
+        assertThat(json.get("size").asInt()).isEqualTo(3);
+        assertThat(json.get("totalElements").asLong()).isEqualTo(total);
+        assertThat(json.get("totalPages").asLong()).isEqualTo((total + 2) / 3);
+
+        JsonNode content = json.get("content");
+        assertThat(content).hasSize(3);
+        assertThat(content.get(0).fieldNames()).toIterable().containsExactly("id", "username", "teamName");
+        assertThat(content.get(0).get("username").asText())
+                .isGreaterThanOrEqualTo(content.get(1).get("username").asText());
+    }
+
+    @Test
+    public void 허용하지_않은_속성으로는_정렬할_수_없다() {
+        assertThatThrownBy(() -> memberPageStreamer.stream(PageRequest.of(0, 3, Sort.by("createdBy"))))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+}
@@ -0,0 +1,94 @@
+package study.datajpa.entity;
+
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 관리 중인 엔티티가 수천 개일 때 flush 비용과 로딩 할당량.
+ * 바이트코드 향상 유무를 비교하려면 ./gradlew benchmark 와 ./gradlew benchmark -PnoEnhance 를 각각 실행한다.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class DirtyCheckingBenchmarkTest {
+
+    static final String NAME = "flushBench";
+    static final int MEMBERS = 5_000;
+    static final int FLUSHES = 20;
+    static final int CHANGES_PER_FLUSH = 10;
+    static final int ROUNDS = 5;
+
+    @Autowired EntityManager em;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from member_view where username = ?", NAME);
+        jdbcTemplate.update("delete from member where username = ?", NAME);
+        jdbcTemplate.update("delete from team where name = ?", NAME);
+    }
+
+    @Test
+    public void flushWithManyManagedEntities() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Team> teams = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                Team team = new Team(NAME);
+                em.persist(team);
+                teams.add(team);
+            }
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member(NAME, i, teams.get(i % teams.size())));
+            }
+        });
+
+        for (int round = 0; round <= ROUNDS; round++) {
+            transactionTemplate.executeWithoutResult(status -> {
+                measure();
+                status.setRollbackOnly();
+            });
+        }
+    }
+
+    private void measure() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        List<Member> members = em.createQuery("select m from Member m where m.username = :username", Member.class)
+                .setParameter("username", NAME)
+                .getResultList();
+        long loadAllocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        long flushNanos = 0;
+        allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < FLUSHES; i++) {
+            for (int j = 0; j < CHANGES_PER_FLUSH; j++) {
+                Member member = members.get((i * CHANGES_PER_FLUSH + j) * 17 % members.size());
+                member.setAge(member.getAge() + 1);
+            }
+            long start = System.nanoTime();
+            em.flush();
+            flushNanos += System.nanoTime() - start;
+        }
+        long flushAllocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf("enhanced %-5s  managed %,d  load alloc %,6d KB  flush avg %,6d us  flush alloc %,6d KB%n",
+                members.get(0) instanceof SelfDirtinessTracker, em.unwrap(org.hibernate.Session.class)
+                        .getStatistics().getEntityCount(),
+                loadAllocated >> 10, flushNanos / FLUSHES / 1_000, flushAllocated >> 10);
+    }
+}
@@ -0,0 +1,31 @@
+package study.datajpa.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UuidBinaryConverterTest {
+
+    UuidBinaryConverter converter = new UuidBinaryConverter();
+
+    @Test
+    public void uuid_문자열을_16바이트로_왕복한다() {
+        String uuid = UUID.randomUUID().toString();
+
+        byte[] binary = converter.convertToDatabaseColumn(uuid);
+
+        assertThat(binary).hasSize(16);
+        assertThat(converter.convertToEntityAttribute(binary)).isEqualTo(uuid);
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        assertThat(converter.convertToEntityAttribute(null)).isNull();
+    }
+
+    @Test
+    public void uuid_가_아니면_저장할_수_없다() {
+        assertThatThrownBy(() -> converter.convertToDatabaseColumn("admin"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
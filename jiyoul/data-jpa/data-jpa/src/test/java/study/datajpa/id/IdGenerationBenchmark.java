@@ -0,0 +1,75 @@
+package study.datajpa.id;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 여러 스레드에서 Member 를 insert 할 때의 처리량. id 설정만 다른 하위 클래스마다 컨텍스트를 따로 띄워 비교한다.
+ * ./gradlew benchmark 로 실행한다.
+ */
+@Tag("benchmark")
+// 앞선 컨텍스트가 만든 시퀀스와 increment 가 달라도 기동하도록 한다. ddl-auto=create 가 시퀀스를 다시 만든다.
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.id.sequence.increment_size_mismatch_strategy=log")
+abstract class IdGenerationBenchmark {
+
+    static final int THREADS = 8;
+    static final int TRANSACTIONS_PER_THREAD = 50;
+    static final int INSERTS_PER_TRANSACTION = 50;
+    static final String PREFIX = "idbench";
+
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from member_view where username like ?", PREFIX + "%");
+        jdbcTemplate.update("delete from member where username like ?", PREFIX + "%");
+    }
+
+    @Test
+    public void concurrentInserts() throws Exception {
+        insert(THREADS, 5); // warm up
+
+        long start = System.nanoTime();
+        insert(THREADS, TRANSACTIONS_PER_THREAD);
+        long elapsed = System.nanoTime() - start;
+
+        int total = THREADS * TRANSACTIONS_PER_THREAD * INSERTS_PER_TRANSACTION;
+        System.out.printf("%-40s %,8d inserts/s%n", getClass().getSimpleName(), total * 1_000_000_000L / elapsed);
+
+        Long inserted = jdbcTemplate.queryForObject("select count(distinct member_id) from member where username like ?",
+                Long.class, PREFIX + "%");
+        assertThat(inserted).isEqualTo(total + THREADS * 5L * INSERTS_PER_TRANSACTION);
+    }
+
+    private void insert(int threads, int transactions) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < transactions; i++) {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        for (int j = 0; j < INSERTS_PER_TRANSACTION; j++) {
+                            em.persist(new Member(PREFIX + j, j));
+                        }
+                    });
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.MINUTES);
+    }
+}
@@ -0,0 +1,8 @@
+package study.datajpa.id;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+// 변경 전 @GeneratedValue 기본값과 같은 조건: insert 마다 시퀀스 조회
+@SpringBootTest(properties = "spring.jpa.properties.app.id.allocation-size=1")
+class SequenceAllocationSize1Benchmark extends IdGenerationBenchmark {
+}
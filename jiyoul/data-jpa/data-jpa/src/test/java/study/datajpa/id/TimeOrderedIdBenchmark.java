@@ -0,0 +1,7 @@
+package study.datajpa.id;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = "spring.jpa.properties.app.id.strategy=time-ordered")
+class TimeOrderedIdBenchmark extends IdGenerationBenchmark {
+}
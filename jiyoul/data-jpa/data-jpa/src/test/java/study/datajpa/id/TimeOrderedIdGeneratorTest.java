@@ -0,0 +1,56 @@
+package study.datajpa.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimeOrderedIdGeneratorTest {
+
+    @Test
+    public void 동시에_만들어도_중복이_없다() throws Exception {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(7);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ids.add(generator.nextId());
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertThat(ids).hasSize(80_000);
+        assertThat(ids).allMatch(id -> id > 0 && TimeOrderedIdGenerator.nodeOf(id) == 7);
+    }
+
+    @Test
+    public void 순번이_넘치거나_시계가_조금_뒤로_가도_증가한다() {
+        AtomicLong clock = new AtomicLong(TimeOrderedIdGenerator.EPOCH + 1_000);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(1, clock::get);
+
+        long previous = 0;
+        for (int i = 0; i < 5_000; i++) {
+            long id = generator.nextId();
+            assertThat(id).isGreaterThan(previous);
+            previous = id;
+        }
+        assertThat(TimeOrderedIdGenerator.timestampOf(previous)).isEqualTo(clock.get() + 1);
+
+        clock.addAndGet(-10);
+        assertThat(generator.nextId()).isGreaterThan(previous);
+
+        clock.addAndGet(-TimeOrderedIdGenerator.MAX_BACKWARD_MILLIS * 2);
+        assertThatThrownBy(generator::nextId).isInstanceOf(IllegalStateException.class);
+    }
+}
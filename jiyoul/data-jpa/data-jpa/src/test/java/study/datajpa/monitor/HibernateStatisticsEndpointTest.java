@@ -0,0 +1,70 @@
+package study.datajpa.monitor;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class HibernateStatisticsEndpointTest {
+
+    @Autowired HibernateStatisticsEndpoint endpoint;
+    @Autowired MemberRepository memberRepository;
+    @Autowired EntityManagerFactory emf;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    Statistics statistics;
+
+    // 기본은 꺼져 있으므로 이 테스트 동안만 켠다.
+    @BeforeEach
+    public void enableStatistics() {
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        endpoint.clear();
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        statistics.setStatisticsEnabled(false);
+        endpoint.clear();
+        jdbcTemplate.update("delete from member_view where username = 'statisticsMember'");
+        jdbcTemplate.update("delete from member where username = 'statisticsMember'");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void 엔티티와_쿼리_통계를_보고하고_지우면_초기화된다() {
+        //given
+        memberRepository.save(new Member("statisticsMember", 10));
+        memberRepository.findByUsername("statisticsMember");
+
+        //when
+        Map<String, Object> result = endpoint.statistics();
+
+        //then
+        assertThat(result.get("enabled")).isEqualTo(true);
+        Map<String, Object> entities = (Map<String, Object>) result.get("entities");
+        Map<String, Object> member = (Map<String, Object>) ((Map<String, Object>) entities.get("perEntity")).get(Member.class.getName());
+        assertThat((long) member.get("inserts")).isGreaterThanOrEqualTo(1);
+        Map<String, Object> queries = (Map<String, Object>) result.get("queries");
+        assertThat((long) queries.get("executions")).isGreaterThanOrEqualTo(1);
+        assertThat(result).containsKeys("sessions", "collections", "secondLevelCache", "persistenceContext");
+
+        //when
+        endpoint.clear();
+
+        //then
+        assertThat(((Map<String, Object>) endpoint.statistics().get("queries")).get("executions")).isEqualTo(0L);
+    }
+}
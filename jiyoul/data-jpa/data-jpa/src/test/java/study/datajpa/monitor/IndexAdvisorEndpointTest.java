@@ -0,0 +1,33 @@
+package study.datajpa.monitor;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class IndexAdvisorEndpointTest {
+
+    @Autowired IndexAdvisorEndpoint endpoint;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void 기존_인덱스는_실제_컬럼명으로_보고한다() {
+        //when
+        Map<String, List<List<String>>> existing = (Map<String, List<List<String>>>) endpoint.advise(null).get("existingIndexes");
+
+        //then SQL 에서 파싱한 컬럼명과 비교하므로 @Index 의 논리 이름(createdDate)도 물리 컬럼명으로 바꿔 보고한다
+        existing.forEach((table, indexes) -> {
+            List<String> columns = jdbcTemplate.queryForList(
+                    "select lower(column_name) from information_schema.columns where lower(table_name) = ?", String.class, table);
+            indexes.forEach(index -> assertThat(columns).as(table).containsAll(index));
+        });
+        assertThat(existing.get("member")).contains(List.of("created_date"));
+    }
+}
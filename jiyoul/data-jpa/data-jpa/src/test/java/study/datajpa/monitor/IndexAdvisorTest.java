@@ -0,0 +1,50 @@
+package study.datajpa.monitor;
+
+import org.junit.jupiter.api.Test;
+import study.datajpa.monitor.IndexAdvisor.IndexRecommendation;
+import study.datajpa.monitor.IndexAdvisor.PredicateShape;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndexAdvisorTest {
+
+    @Test
+    public void 조건_컬럼을_테이블별로_파싱한다() {
+        List<PredicateShape> shapes = IndexAdvisor.parse(
+                "select member0_.member_id as member_i1_1_ from member member0_ where member0_.username=? and member0_.age>? order by member0_.username desc");
+
+        assertThat(shapes).hasSize(1);
+        assertThat(shapes.get(0).getTable()).isEqualTo("member");
+        assertThat(shapes.get(0).indexColumns()).containsExactly("username", "age");
+    }
+
+    @Test
+    public void 네이티브_쿼리와_벌크_업데이트도_파싱한다() {
+        assertThat(IndexAdvisor.parse("select * from member where username = ?").get(0).indexColumns())
+                .containsExactly("username");
+        assertThat(IndexAdvisor.parse("update member set age=age+1 where age>=?").get(0).indexColumns())
+                .containsExactly("age");
+    }
+
+    @Test
+    public void 기존_인덱스로_커버되지_않는_조합만_추천한다() {
+        IndexAdvisor advisor = new IndexAdvisor();
+        for (int i = 0; i < 3; i++) {
+            advisor.inspect("select member0_.member_id from member member0_ where member0_.username=? and member0_.age>?");
+            advisor.inspect("select member0_.member_id from member member0_ where member0_.username=?");
+        }
+
+        Map<String, List<List<String>>> existing = Collections.singletonMap("member",
+                Arrays.asList(Collections.singletonList("member_id"), Collections.singletonList("username")));
+        List<IndexRecommendation> recommendations = advisor.recommend(existing, 2);
+
+        assertThat(recommendations).hasSize(1);
+        assertThat(recommendations.get(0).getColumns()).containsExactly("username", "age");
+        assertThat(recommendations.get(0).getExecutions()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,79 @@
+package study.datajpa.monitor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.HandlerMapping;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ExtendWith(OutputCaptureExtension.class)
+class PersistenceContextSizeInterceptorTest {
+
+    static final String USERNAME = "contextSizeMember";
+
+    @Autowired EntityManagerFactory emf;
+    @Autowired EntityManager em;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from member_view where username = ?", USERNAME);
+        jdbcTemplate.update("delete from member where username = ?", USERNAME);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void 핸들러별로_엔티티_수를_기록하고_기준_이상이면_경고한다(CapturedOutput output) {
+        //given
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            members.add(new Member(USERNAME, i));
+        }
+        memberRepository.saveAll(members);
+        PersistenceContextSizeInterceptor interceptor = new PersistenceContextSizeInterceptor(emf, 3);
+
+        //when 엔티티 1개, 3개를 올린 두 요청
+        handle(interceptor, "/members/{id}", 1);
+        handle(interceptor, "/members", 3);
+
+        //then
+        Map<String, Object> one = (Map<String, Object>) interceptor.snapshot().get("GET /members/{id}");
+        Map<String, Object> all = (Map<String, Object>) interceptor.snapshot().get("GET /members");
+        assertThat(one.get("maxEntities")).isEqualTo(1L);
+        assertThat(all.get("maxEntities")).isEqualTo(3L);
+        assertThat(output.getOut()).contains("GET /members left 3 entities in the persistence context")
+                .doesNotContain("GET /members/{id} left");
+    }
+
+    private void handle(PersistenceContextSizeInterceptor interceptor, String pattern, int entities) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", pattern);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("select m from Member m where m.username = :username", Member.class)
+                    .setParameter("username", USERNAME)
+                    .setMaxResults(entities)
+                    .getResultList();
+            interceptor.postHandle(request, new MockHttpServletResponse(), null, null);
+        });
+    }
+}
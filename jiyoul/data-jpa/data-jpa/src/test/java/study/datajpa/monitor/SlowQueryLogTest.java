@@ -0,0 +1,108 @@
+package study.datajpa.monitor;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class SlowQueryLogTest {
+
+    @Autowired SlowQueryLog slowQueryLog;
+    @Autowired MemberRepository memberRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    long threshold;
+
+    @BeforeEach
+    public void setUp() {
+        threshold = slowQueryLog.getThresholdMillis();
+        slowQueryLog.clear();
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        slowQueryLog.setThresholdMillis(threshold);
+        slowQueryLog.clear();
+        jdbcTemplate.update("delete from member where username like 'slowlog%'");
+    }
+
+    @Test
+    public void 느린_리포지토리_쿼리는_메서드와_바인딩_값_실행_계획을_함께_남긴다() throws Exception {
+        //given
+        memberRepository.save(new Member("slowlog1", 77));
+
+        //when
+        slowQueryLog.setThresholdMillis(0);
+        memberRepository.findPageByAge(77, PageRequest.of(0, 10));
+        memberRepository.findByAge(77, PageRequest.of(0, 10));
+        slowQueryLog.setThresholdMillis(threshold);
+        slowQueryLog.awaitExplains();
+
+        //then
+        SlowQuery indexed = slowQueryLog.records("MemberRepository.findPageByAge", 10).get(0);
+        assertThat(indexed.getRepositoryMethod()).isEqualTo("MemberRepository.findPageByAge");
+        assertThat(indexed.getOrigin()).startsWith(SlowQueryLogTest.class.getName());
+        assertThat(indexed.getParams()).isEqualTo("[?, ?]"); // 기록에는 가리고 EXPLAIN 에만 쓴다
+        assertThat(indexed.getPlanError()).isNull();
+        assertThat(indexed.getPlan()).containsIgnoringCase("idx_member_age");
+
+        //findByAge 의 @Query 는 age 조건이 없어 전체 스캔이다
+        List<SlowQuery> fullScans = slowQueryLog.records("MemberRepository.findByAge", 10);
+        assertThat(fullScans).isNotEmpty().allSatisfy(record -> {
+            assertThat(record.getPlan()).doesNotContainIgnoringCase("where");
+            assertThat(record.getPlan()).doesNotContainIgnoringCase("idx_member_age");
+        });
+    }
+
+    @Test
+    public void 리포지토리_밖의_쓰기는_계획_없이_남긴다() throws Exception {
+        //when
+        slowQueryLog.setThresholdMillis(0);
+        jdbcTemplate.update("insert into member (member_id, username, age) values (?, ?, ?)", -4901L, "slowlog2", 1);
+        slowQueryLog.setThresholdMillis(threshold);
+        slowQueryLog.awaitExplains();
+
+        //then
+        List<SlowQuery> records = slowQueryLog.records(null, 200);
+        SlowQuery insert = records.stream()
+                .filter(record -> record.getSql().startsWith("insert into member "))
+                .findFirst().orElseThrow();
+        assertThat(insert.getRepositoryMethod()).isNull();
+        assertThat(insert.getPlan()).isNull();
+        assertThat(insert.getParams()).isEqualTo("[?, ?, ?]");
+        assertThat(slowQueryLog.records("MemberRepository", 200)).doesNotContain(insert);
+    }
+
+    @Test
+    public void include_params_를_켜면_바인딩_값을_그대로_남긴다() throws Exception {
+        //given
+        SlowQueryLog log = new SlowQueryLog(new StaticListableBeanFactory().getBeanProvider(JdbcTemplate.class), 0, 10, false, true);
+        ExecutionInfo execution = new ExecutionInfo();
+        execution.setElapsedTime(1);
+        QueryInfo query = new QueryInfo("select * from member where username = ?");
+        query.getParametersList().add(List.of(new ParameterSetOperation(
+                PreparedStatement.class.getMethod("setString", int.class, String.class), new Object[]{1, "slowlog3"})));
+
+        //when
+        log.afterQuery(execution, List.of(query));
+
+        //then
+        assertThat(log.records(null, 10)).extracting(SlowQuery::getParams).containsExactly("[slowlog3]");
+        log.destroy();
+    }
+}
@@ -0,0 +1,137 @@
+package study.datajpa.monitor;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlSamplerTest {
+
+    @Test
+    public void 링_버퍼는_순서대로_꺼내고_덮어쓴_표본은_dropped_로_센다() {
+        SqlSampleRingBuffer buffer = new SqlSampleRingBuffer(5);
+        assertThat(buffer.capacity()).isEqualTo(8);
+
+        for (int i = 0; i < 3; i++) {
+            buffer.offer(sample("q" + i, 1));
+        }
+        List<String> drained = new ArrayList<>();
+        assertThat(buffer.drain(s -> drained.add(s.getSql()))).isEqualTo(3);
+        assertThat(drained).containsExactly("q0", "q1", "q2");
+
+        //drain 이 따라가지 못하면 가장 최근 capacity 개만 남는다
+        for (int i = 3; i < 23; i++) {
+            buffer.offer(sample("q" + i, 1));
+        }
+        drained.clear();
+        assertThat(buffer.drain(s -> drained.add(s.getSql()))).isEqualTo(8);
+        assertThat(drained).containsExactly("q15", "q16", "q17", "q18", "q19", "q20", "q21", "q22");
+        assertThat(buffer.dropped()).isEqualTo(12);
+        assertThat(buffer.drain(s -> drained.add(s.getSql()))).isZero();
+    }
+
+    @Test
+    public void 여러_스레드가_동시에_써도_잃어버린_표본은_모두_dropped_에_잡힌다() throws Exception {
+        SqlSampleRingBuffer buffer = new SqlSampleRingBuffer(1024);
+        int threads = 4;
+        int perThread = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    buffer.offer(sample("q", 1));
+                }
+                return null;
+            });
+        }
+
+        long[] drained = new long[1];
+        start.countDown();
+        executor.shutdown();
+        while (!executor.awaitTermination(1, TimeUnit.MILLISECONDS)) {
+            drained[0] += buffer.drain(s -> { });
+        }
+        drained[0] += buffer.drain(s -> { });
+
+        assertThat(buffer.offered()).isEqualTo((long) threads * perThread);
+        assertThat(drained[0] + buffer.dropped()).isEqualTo(buffer.offered());
+    }
+
+    @Test
+    public void 느린_문장은_항상_바인딩_값과_호출_위치를_함께_기록한다() throws Exception {
+        SqlSampler sampler = new SqlSampler(0, 100, 16, true);
+
+        sampler.afterQuery(execution(5), List.of(query("select 1 from member where username = ?", "fast")));
+        sampler.afterQuery(execution(150), List.of(query("select * from member where username = ? and team_id = ?", "member1", null)));
+
+        List<SqlSample> samples = new ArrayList<>();
+        sampler.buffer().drain(samples::add);
+        assertThat(samples).hasSize(1);
+        SqlSample sample = samples.get(0);
+        assertThat(sample.isSlow()).isTrue();
+        assertThat(sample.getElapsedMillis()).isEqualTo(150);
+        assertThat(sample.getParams()).isEqualTo("[member1, null]");
+        assertThat(sample.getOrigin()).startsWith(SqlSamplerTest.class.getName() + ".느린_문장은");
+    }
+
+    @Test
+    public void 표본_비율이_1이면_모든_문장을_기록한다() throws Exception {
+        SqlSampler sampler = new SqlSampler(1.0, 100, 16, true);
+
+        for (int i = 0; i < 10; i++) {
+            sampler.afterQuery(execution(1), List.of(query("select 1", i)));
+        }
+
+        List<SqlSample> samples = new ArrayList<>();
+        assertThat(sampler.buffer().drain(samples::add)).isEqualTo(10);
+        assertThat(samples).noneMatch(SqlSample::isSlow);
+        assertThat(samples.get(9).getParams()).isEqualTo("[9]");
+    }
+
+    @Test
+    public void 바인딩_값은_켜지_않으면_가린다() throws Exception {
+        SqlSampler sampler = new SqlSampler(0, 100, 16, false);
+
+        sampler.afterQuery(execution(150), List.of(query("select * from member where username = ? and team_id = ?", "member1", null)));
+
+        List<SqlSample> samples = new ArrayList<>();
+        sampler.buffer().drain(samples::add);
+        assertThat(samples.get(0).getParams()).isEqualTo("[?, null]");
+    }
+
+    private static SqlSample sample(String sql, long elapsed) {
+        return new SqlSample(System.currentTimeMillis(), elapsed, sql, "", "test", "main", false, true);
+    }
+
+    private static ExecutionInfo execution(long elapsed) {
+        ExecutionInfo info = new ExecutionInfo();
+        info.setElapsedTime(elapsed);
+        info.setSuccess(true);
+        return info;
+    }
+
+    private static QueryInfo query(String sql, Object... values) throws Exception {
+        QueryInfo queryInfo = new QueryInfo(sql);
+        List<ParameterSetOperation> operations = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            operations.add(values[i] == null
+                    ? new ParameterSetOperation(PreparedStatement.class.getMethod("setNull", int.class, int.class), new Object[]{i + 1, Types.VARCHAR})
+                    : new ParameterSetOperation(PreparedStatement.class.getMethod("setObject", int.class, Object.class), new Object[]{i + 1, values[i]}));
+        }
+        queryInfo.getParametersList().add(operations);
+        return queryInfo;
+    }
+}
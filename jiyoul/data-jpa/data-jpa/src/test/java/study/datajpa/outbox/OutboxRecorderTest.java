@@ -0,0 +1,64 @@
+package study.datajpa.outbox;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.OutboxEvent;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.OutboxEventRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@Transactional
+class OutboxRecorderTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    TeamRepository teamRepository;
+    @Autowired
+    OutboxEventRepository outboxEventRepository;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void 엔티티_쓰기와_벌크_연산이_순서대로_기록된다() throws Exception {
+        //given
+        long lastId = outboxEventRepository.findAll().stream().mapToLong(OutboxEvent::getId).max().orElse(0);
+        Team team = teamRepository.save(new Team("outboxTeam"));
+        Member member = memberRepository.save(new Member("outboxMember", 10, team));
+
+        //when
+        member.setUsername("outboxMember2");
+        int rows = memberRepository.bulkAgePlus(100);
+        memberRepository.delete(memberRepository.findById(member.getId()).get());
+        em.flush();
+
+        //then
+        List<OutboxEvent> events = outboxEventRepository.findAll().stream()
+                .filter(event -> event.getId() > lastId)
+                .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                .collect(Collectors.toList());
+
+        assertThat(events).extracting("aggregateType", "aggregateId", "eventType").containsExactly(
+                tuple("Team", String.valueOf(team.getId()), OutboxEvent.INSERT),
+                tuple("Member", String.valueOf(member.getId()), OutboxEvent.INSERT),
+                tuple("Member", String.valueOf(member.getId()), OutboxEvent.UPDATE),
+                tuple("Member", null, OutboxEvent.BULK),
+                tuple("Member", String.valueOf(member.getId()), OutboxEvent.DELETE));
+        assertThat(events.get(1).getPayload()).contains("\"team\":" + team.getId());
+        assertThat(events.get(3).getPayload()).contains("bulkAgePlus").contains("\"rows\":" + rows);
+    }
+}
@@ -0,0 +1,139 @@
+package study.datajpa.outbox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.OutboxEvent;
+import study.datajpa.repository.OutboxEventRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+class OutboxRelayTest {
+
+    static final String NODE = "relay-test";
+    static final String AGGREGATE = "RelayTest";
+
+    @Autowired OutboxEventRepository outboxEventRepository;
+    @Autowired ObjectProvider<OutboxSubscriber> subscribers;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    List<OutboxEvent> delivered = new ArrayList<>();
+    OutboxRelay relay;
+
+    // 스케줄된 relay 가 테스트 이벤트를 가져가지 않도록 이 노드가 lease 를 잡는다. 기존 구독자에게도 그대로 전달한다.
+    @BeforeEach
+    public void setUp() {
+        Map<String, Object> beans = subscribers.orderedStream()
+                .collect(Collectors.toMap(subscriber -> subscriber.getClass().getName(), subscriber -> subscriber));
+        beans.put("failing", (OutboxSubscriber) this::deliver);
+        relay = new OutboxRelay(outboxEventRepository, new StaticListableBeanFactory(beans).getBeanProvider(OutboxSubscriber.class),
+                transactionTemplate, jdbcTemplate, NODE, 100, 3, 24, 60_000);
+        holdLease(NODE);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from outbox_event where aggregate_type = ?", AGGREGATE);
+        jdbcTemplate.update("update outbox_relay_lease set lease_until = ?", Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)));
+    }
+
+    @Test
+    public void 실패한_이벤트만_재시도하고_같은_aggregate_의_뒤_이벤트는_보류한다() {
+        //given
+        insertEvent("1", OutboxEvent.INSERT);
+        insertEvent("bad", OutboxEvent.INSERT);
+        insertEvent("2", OutboxEvent.INSERT);
+        insertEvent("bad", OutboxEvent.UPDATE);
+
+        //when
+        relay.relay();
+
+        //then
+        assertThat(events()).extracting("aggregateId", "eventType", "published", "attempts").containsExactly(
+                tuple("1", OutboxEvent.INSERT, true, 0),
+                tuple("bad", OutboxEvent.INSERT, false, 1),
+                tuple("2", OutboxEvent.INSERT, true, 0),
+                tuple("bad", OutboxEvent.UPDATE, false, 0));
+        assertThat(delivered).extracting("aggregateId", "eventType").doesNotContain(tuple("bad", OutboxEvent.UPDATE));
+    }
+
+    @Test
+    public void 최대_횟수만큼_실패하면_뒤_이벤트를_전달한다() {
+        //given
+        insertEvent("bad", OutboxEvent.INSERT);
+        insertEvent("bad", OutboxEvent.UPDATE);
+
+        //when
+        for (int i = 0; i < 4; i++) {
+            relay.relay();
+        }
+
+        //then UPDATE 는 앞의 INSERT 가 dead letter 가 된 뒤에야 전달된다(이 구독자는 bad 를 항상 실패시킨다)
+        assertThat(events()).extracting("eventType", "published", "attempts").containsExactly(
+                tuple(OutboxEvent.INSERT, false, 3),
+                tuple(OutboxEvent.UPDATE, false, 1));
+    }
+
+    @Test
+    public void 다른_노드가_lease_를_잡고_있으면_발행하지_않는다() {
+        //given
+        holdLease("other-node");
+        insertEvent("1", OutboxEvent.INSERT);
+
+        //when
+        relay.relay();
+
+        //then
+        assertThat(events()).extracting("published").containsExactly(false);
+        assertThat(delivered).isEmpty();
+    }
+
+    private void deliver(List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            if (AGGREGATE.equals(event.getAggregateType())) {
+                delivered.add(event);
+                if ("bad".equals(event.getAggregateId())) {
+                    throw new IllegalStateException("subscriber failed on " + event);
+                }
+            }
+        }
+    }
+
+    private void holdLease(String owner) {
+        Timestamp until = Timestamp.valueOf(LocalDateTime.now().plusHours(1));
+        try {
+            jdbcTemplate.update("insert into outbox_relay_lease (name, owner, lease_until) values ('outbox', ?, ?)", owner, until);
+        } catch (DataIntegrityViolationException e) {
+            jdbcTemplate.update("update outbox_relay_lease set owner = ?, lease_until = ? where name = 'outbox'", owner, until);
+        }
+    }
+
+    private void insertEvent(String aggregateId, String eventType) {
+        jdbcTemplate.update("insert into outbox_event (aggregate_type, aggregate_id, event_type, payload, created_date, published, attempts) " +
+                "values (?, ?, ?, '{}', ?, false, 0)", AGGREGATE, aggregateId, eventType, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private List<OutboxEvent> events() {
+        return outboxEventRepository.findAll().stream()
+                .filter(event -> AGGREGATE.equals(event.getAggregateType()))
+                .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,113 @@
+package study.datajpa.readmodel;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.OutboxEvent;
+import study.datajpa.entity.Team;
+import study.datajpa.outbox.OutboxRecorder;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.OutboxEventRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MemberViewProjectorTest {
+
+    @Autowired MemberViewProjector projector;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired OutboxRecorder outboxRecorder;
+    @Autowired OutboxEventRepository outboxEventRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    // 스케줄된 relay 가 앞 테스트의 범위 이벤트를 늦게 전달하면 전체가 다시 맞춰지므로 테스트 동안 lease 를 잡아 둔다.
+    @BeforeEach
+    public void holdLease() {
+        Timestamp until = Timestamp.valueOf(LocalDateTime.now().plusHours(1));
+        try {
+            jdbcTemplate.update("insert into outbox_relay_lease (name, owner, lease_until) values ('outbox', 'projector-test', ?)", until);
+        } catch (DataIntegrityViolationException e) {
+            jdbcTemplate.update("update outbox_relay_lease set owner = 'projector-test', lease_until = ? where name = 'outbox'", until);
+        }
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from member_view where username like 'projector%'");
+        jdbcTemplate.update("delete from member where username like 'projector%'");
+        jdbcTemplate.update("delete from team where name like 'projector%'");
+        jdbcTemplate.update("update outbox_relay_lease set lease_until = ?", Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)));
+    }
+
+    @Test
+    public void 구간이_있는_범위_이벤트는_그_구간만_다시_맞춘다() {
+        //given member_view 를 거치지 않고 두 회원을 바꾼다
+        Long inRange = memberRepository.save(new Member("projectorA", 10)).getId();
+        Long outOfRange = memberRepository.save(new Member("projectorB", 10)).getId();
+        jdbcTemplate.update("update member set age = 99 where member_id in (?, ?)", inRange, outOfRange);
+
+        //when
+        projector.onEvents(List.of(recordRange(Member.class, Map.of("partitionFrom", inRange, "partitionTo", inRange + 1))));
+
+        //then
+        assertThat(viewAge(inRange)).isEqualTo(99);
+        assertThat(viewAge(outOfRange)).isEqualTo(10);
+    }
+
+    @Test
+    public void 지워진_회원은_다시_맞춰도_되살아나지_않는다() {
+        //given
+        Long id = memberRepository.save(new Member("projectorC", 10)).getId();
+        jdbcTemplate.update("delete from member where member_id = ?", id);
+
+        //when 구간을 모르는 범위 이벤트는 전체를 맞춘다
+        projector.onEvents(List.of(recordRange(Member.class, Map.of("method", "test"))));
+
+        //then
+        assertThat(jdbcTemplate.queryForObject("select count(*) from member_view where member_id = ?", Integer.class, id)).isZero();
+    }
+
+    @Test
+    public void 팀_범위_이벤트는_팀_이름만_다시_채운다() {
+        //given
+        Team team = teamRepository.save(new Team("projectorTeam"));
+        Long id = memberRepository.save(new Member("projectorD", 10, team)).getId();
+        jdbcTemplate.update("update team set name = 'projectorTeam2' where team_id = ?", team.getId());
+        jdbcTemplate.update("update member set age = 99 where member_id = ?", id);
+
+        //when
+        projector.onEvents(List.of(recordRange(Team.class, Map.of("method", "test"))));
+
+        //then
+        assertThat(jdbcTemplate.queryForObject("select team_name from member_view where member_id = ?", String.class, id))
+                .isEqualTo("projectorTeam2");
+        assertThat(viewAge(id)).isEqualTo(10);
+    }
+
+    private OutboxEvent recordRange(Class<?> aggregateType, Map<String, Object> description) {
+        transactionTemplate.executeWithoutResult(status -> outboxRecorder.recordRange(aggregateType, description));
+        return outboxEventRepository.findAll().stream()
+                .filter(event -> event.isRange() && event.getAggregateType().equals(aggregateType.getSimpleName()))
+                .max(Comparator.comparing(OutboxEvent::getId))
+                .orElseThrow();
+    }
+
+    private int viewAge(Long id) {
+        return jdbcTemplate.queryForObject("select age from member_view where member_id = ?", Integer.class, id);
+    }
+}
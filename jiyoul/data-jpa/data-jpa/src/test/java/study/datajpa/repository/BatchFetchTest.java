@@ -0,0 +1,71 @@
+package study.datajpa.repository;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class BatchFetchTest {
+
+    @Autowired EntityManager em;
+
+    AtomicInteger statements = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        for (int i = 0; i < 5; i++) {
+            Team team = new Team("batchTeam" + i);
+            em.persist(team);
+            em.persist(new Member("batchMember" + i + "a", 10, team));
+            em.persist(new Member("batchMember" + i + "b", 10, team));
+        }
+        em.flush();
+        em.clear();
+
+        //현재 세션에서 실행되는 SQL 만 센다
+        em.unwrap(Session.class).addEventListeners(new BaseSessionEventListener() {
+            @Override
+            public void jdbcExecuteStatementEnd() {
+                statements.incrementAndGet();
+            }
+        });
+    }
+
+    @Test
+    public void 팀_프록시를_한번에_초기화한다() {
+        List<Member> members = em.createQuery("select m from Member m where m.username like 'batchMember%'", Member.class)
+                .getResultList();
+        assertThat(statements.get()).isEqualTo(1);
+
+        members.forEach(member -> member.getTeam().getName());
+
+        assertThat(members).hasSize(10);
+        assertThat(statements.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void 팀의_회원_컬렉션을_한번에_초기화한다() {
+        List<Team> teams = em.createQuery("select t from Team t where t.name like 'batchTeam%'", Team.class)
+                .getResultList();
+        assertThat(statements.get()).isEqualTo(1);
+
+        teams.forEach(team -> team.getMembers().size());
+
+        assertThat(teams).hasSize(5);
+        assertThat(teams).allMatch(team -> team.getMembers().size() == 2);
+        assertThat(statements.get()).isEqualTo(2);
+    }
+}
@@ -97,6 +97,30 @@ class MemberJpaRepositoryTest {
         assertThat(totalCount).isEqualTo(5);
     }
 
+    @Test
+    public void pagingWithCount() throws Exception {
+        //given
+        int age = 510;
+        for (int i = 1; i <= 5; i++) {
+            memberJpaRepository.save(new Member("member" + i, age));
+        }
+
+        //when
+        OffsetPage<Member> page = memberJpaRepository.findPageWithCount(age, 0, 3);
+        OffsetPage<Member> last = memberJpaRepository.findPageWithCount(age, 3, 3);
+        OffsetPage<Member> beyond = memberJpaRepository.findPageWithCount(age, 10, 3);
+
+        //then
+        assertThat(page.getContent()).extracting("username").containsExactly("member5", "member4", "member3");
+        assertThat(page.getTotalCount()).isEqualTo(5);
+        assertThat(page.hasNext()).isTrue();
+        assertThat(last.getContent()).hasSize(2);
+        assertThat(last.getTotalCount()).isEqualTo(5);
+        assertThat(last.hasNext()).isFalse();
+        assertThat(beyond.getContent()).isEmpty();
+        assertThat(beyond.getTotalCount()).isEqualTo(5);
+    }
+
     @Test
     public void bulkUpdate() throws Exception {
         //given
@@ -0,0 +1,95 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MemberLoaderTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    TeamRepository teamRepository;
+    @Autowired
+    MemberLoader loader;
+
+    List<Member> saved = new ArrayList<>();
+    Team team;
+    BatchLoader<Member, Long> memberLoader;
+    AtomicInteger batchCalls = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        //윈도우를 넉넉히 잡아 테스트 스레드의 요청이 한 배치에 모이도록 한다
+        memberLoader = new BatchLoader<>("test-loader", ids -> {
+            batchCalls.incrementAndGet();
+            return memberRepository.findAllById(ids);
+        }, Member::getId, 200, 100);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        memberLoader.destroy();
+        memberRepository.deleteAll(saved);
+        if (team != null) {
+            teamRepository.deleteById(team.getId());
+        }
+    }
+
+    @Test
+    public void 동시_조회는_한번의_쿼리로_합쳐진다() throws Exception {
+        //given
+        Member m1 = memberRepository.save(new Member("loader1", 10));
+        Member m2 = memberRepository.save(new Member("loader2", 20));
+        saved.add(m1);
+        saved.add(m2);
+
+        //when
+        CompletableFuture<Optional<Member>> f1 = memberLoader.load(m1.getId());
+        CompletableFuture<Optional<Member>> f2 = memberLoader.load(m1.getId());
+        CompletableFuture<Optional<Member>> f3 = memberLoader.load(m2.getId());
+        CompletableFuture<Optional<Member>> f4 = memberLoader.load(-1L);
+        CompletableFuture.allOf(f1, f2, f3, f4).join();
+
+        //then
+        assertThat(f1).isSameAs(f2);
+        assertThat(f1.get().get().getUsername()).isEqualTo("loader1");
+        assertThat(f3.get().get().getUsername()).isEqualTo("loader2");
+        assertThat(f4.get()).isEmpty();
+        assertThat(batchCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void 회원_로더는_호출자마다_팀_이름까지_담은_복사본을_준다() {
+        //given
+        team = teamRepository.save(new Team("loaderTeam"));
+        Member member = memberRepository.save(new Member("loader3", 10, team));
+        saved.add(member);
+
+        //when
+        CompletableFuture<Optional<MemberDto>> f1 = loader.load(member.getId());
+        CompletableFuture<Optional<MemberDto>> f2 = loader.load(member.getId());
+        MemberDto first = f1.join().get();
+        MemberDto second = f2.join().get();
+        first.setUsername("changed");
+
+        //then
+        assertThat(first).isNotSameAs(second);
+        assertThat(second.getUsername()).isEqualTo("loader3");
+        assertThat(second.getTeamName()).isEqualTo("loaderTeam");
+    }
+}
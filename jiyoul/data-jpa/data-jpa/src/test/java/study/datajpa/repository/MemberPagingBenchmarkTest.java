@@ -0,0 +1,87 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 두 번의 쿼리(findByPage + totalCount), 윈도우 함수 한 번(findPageWithCount), Spring Data Page 비교.
+ * 기본 test 태스크에서는 제외되며 ./gradlew benchmark 로 실행한다.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Transactional
+class MemberPagingBenchmarkTest {
+
+    static final int AGE = 4242;
+    static final int ROWS = 20_000;
+    static final int PAGE_SIZE = 20;
+    static final int WARMUP = 200;
+    static final int ITERATIONS = 1_000;
+
+    @Autowired EntityManager em;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    public void paging() {
+        for (int i = 0; i < ROWS; i++) {
+            em.persist(new Member("bench" + i, AGE));
+            if (i % 1_000 == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+
+        // 세 방식이 같은 결과를 내는지 먼저 확인
+        List<Member> twoQueries = memberJpaRepository.findByPage(AGE, PAGE_SIZE, PAGE_SIZE);
+        OffsetPage<Member> windowed = memberJpaRepository.findPageWithCount(AGE, PAGE_SIZE, PAGE_SIZE);
+        Page<Member> springData = memberRepository.findPageByAge(AGE, pageRequest(1));
+        assertThat(windowed.getContent()).isEqualTo(twoQueries);
+        assertThat(springData.getContent()).isEqualTo(twoQueries);
+        assertThat(windowed.getTotalCount()).isEqualTo(ROWS).isEqualTo(springData.getTotalElements());
+
+        measure("findByPage + totalCount", page -> {
+            memberJpaRepository.findByPage(AGE, page * PAGE_SIZE, PAGE_SIZE);
+            memberJpaRepository.totalCount(AGE);
+        });
+        measure("findPageWithCount", page ->
+                memberJpaRepository.findPageWithCount(AGE, page * PAGE_SIZE, PAGE_SIZE));
+        measure("Spring Data Page", page ->
+                memberRepository.findPageByAge(AGE, pageRequest(page)));
+    }
+
+    private void measure(String name, IntConsumer pageQuery) {
+        int pages = ROWS / PAGE_SIZE;
+        for (int i = 0; i < WARMUP; i++) {
+            pageQuery.accept(i % pages);
+            em.clear();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            pageQuery.accept(i % pages);
+            em.clear();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-25s avg %,8d us/page%n", name, elapsed / ITERATIONS / 1_000);
+    }
+
+    private PageRequest pageRequest(int page) {
+        return PageRequest.of(page, PAGE_SIZE, Sort.by(Sort.Direction.DESC, "username"));
+    }
+}
@@ -0,0 +1,66 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.MemberView;
+import study.datajpa.entity.Team;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MemberViewRepositoryTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    TeamRepository teamRepository;
+    @Autowired
+    MemberViewRepository memberViewRepository;
+
+    Team team;
+    Member member;
+
+    @AfterEach
+    public void cleanUp() {
+        memberRepository.deleteById(member.getId());
+        teamRepository.deleteById(team.getId());
+    }
+
+    @Test
+    public void 회원과_팀_쓰기가_읽기_모델에_반영된다() {
+        //given
+        team = teamRepository.save(new Team("viewTeam"));
+        member = memberRepository.save(new Member("viewMember", 10, team));
+
+        //when
+        team.setName("renamedTeam");
+        teamRepository.save(team);
+
+        //then
+        List<MemberView> result = memberViewRepository.findAll(MemberViewSpec.usernameStartsWith("viewMem"));
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getId()).isEqualTo(member.getId());
+        assertThat(result.get(0).getAge()).isEqualTo(10);
+        assertThat(result.get(0).getTeamName()).isEqualTo("renamedTeam");
+    }
+
+    @Test
+    public void 접두어의_와일드카드_문자는_글자로_찾는다() {
+        //given
+        team = teamRepository.save(new Team("viewTeam"));
+        member = memberRepository.save(new Member("view_1", 10, team));
+        Member other = memberRepository.save(new Member("viewX1", 10, team));
+
+        //when
+        List<MemberView> result = memberViewRepository.findAll(MemberViewSpec.usernameStartsWith("view_"));
+        memberRepository.delete(other);
+
+        //then
+        assertThat(result).extracting(MemberView::getUsername).containsExactly("view_1");
+    }
+}
@@ -0,0 +1,98 @@
+package study.datajpa.repository;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MultiLoadRepositoryTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired EntityManager em;
+
+    AtomicInteger statements = new AtomicInteger();
+
+    @Test
+    public void 입력_순서대로_반환하고_관리중인_엔티티는_조회하지_않는다() {
+        //given
+        List<Member> members = persistMembers(5);
+        Member managed = em.find(Member.class, members.get(2).getId());
+        countStatements();
+
+        //when
+        List<Member> result = memberRepository.findAllByIdInOrder(Arrays.asList(
+                members.get(4).getId(), members.get(2).getId(), -1L, members.get(0).getId()));
+
+        //then
+        assertThat(result).extracting(Member::getId)
+                .containsExactly(members.get(4).getId(), members.get(2).getId(), members.get(0).getId());
+        assertThat(result.get(1)).isSameAs(managed);
+        assertThat(statements.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void 배치_크기로_나눠_조회한다() {
+        //given
+        List<Long> ids = persistMembers(250).stream().map(Member::getId).collect(Collectors.toList());
+        countStatements();
+
+        //when
+        List<Member> result = memberRepository.findAllByIdInOrder(ids);
+
+        //then default_batch_fetch_size 100
+        assertThat(result).hasSize(250);
+        assertThat(statements.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void 팀도_같은_방식으로_조회한다() {
+        Team teamA = new Team("multiLoadA");
+        Team teamB = new Team("multiLoadB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.flush();
+        em.clear();
+
+        List<Team> result = teamRepository.findAllByIdInOrder(Arrays.asList(teamB.getId(), teamA.getId()));
+
+        assertThat(result).extracting(Team::getName).containsExactly("multiLoadB", "multiLoadA");
+    }
+
+    private List<Member> persistMembers(int count) {
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Member member = new Member("multiLoad" + i, 10);
+            em.persist(member);
+            members.add(member);
+        }
+        em.flush();
+        em.clear();
+        return members;
+    }
+
+    //현재 세션에서 실행되는 SQL 만 센다
+    private void countStatements() {
+        em.unwrap(Session.class).addEventListeners(new BaseSessionEventListener() {
+            @Override
+            public void jdbcExecuteStatementEnd() {
+                statements.incrementAndGet();
+            }
+        });
+    }
+}
@@ -0,0 +1,96 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 같은 쿼리 메서드를 읽기 전용 트랜잭션(@ReadOnlyQueries 기본값)과 쓰기 트랜잭션에서 실행했을 때의
+ * 할당량, 영속성 컨텍스트가 살아 있는 동안의 힙 사용량, 커밋까지의 시간 비교.
+ * ./gradlew benchmark 로 실행한다.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class ReadOnlyQueriesBenchmarkTest {
+
+    static final String USERNAME = "readOnlyBench";
+    static final int ROWS = 50_000;
+    static final int ROUNDS = 5;
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired EntityManager em;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from member_view where username = ?", USERNAME);
+        jdbcTemplate.update("delete from member where username = ?", USERNAME);
+    }
+
+    @Test
+    public void readOnlyVersusReadWrite() {
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        readWrite.executeWithoutResult(status -> {
+            for (int i = 0; i < ROWS; i++) {
+                em.persist(new Member(USERNAME, i));
+                if (i % 1_000 == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+        });
+
+        measure("read-write", readWrite); // warm up
+        measure("read-only", readOnly);
+        for (int i = 0; i < ROUNDS; i++) {
+            measure("read-write", readWrite);
+            measure("read-only", readOnly);
+        }
+    }
+
+    private void measure(String name, TransactionTemplate transactionTemplate) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long[] retained = new long[1];
+
+        System.gc();
+        long heapBefore = usedHeap();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long cpuBefore = threads.getCurrentThreadCpuTime();
+        long start = System.nanoTime();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Member> members = memberRepository.findListByUsername(USERNAME);
+            assertThat(members).hasSize(ROWS);
+            System.gc();
+            retained[0] = usedHeap() - heapBefore;
+        });
+
+        long elapsed = System.nanoTime() - start;
+        long cpu = threads.getCurrentThreadCpuTime() - cpuBefore;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        System.out.printf("%-10s %,6d ms (cpu %,6d ms)  allocated %,5d MB  retained %,5d MB%n",
+                name, elapsed / 1_000_000, cpu / 1_000_000, allocated >> 20, retained[0] >> 20);
+    }
+
+    private long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,92 @@
+package study.datajpa.repository;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ReadOnlyQueriesTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired EntityManagerFactory emf;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    Member member;
+    Member other;
+
+    @BeforeEach
+    public void setUp() {
+        member = memberRepository.save(new Member("readOnly1", 10));
+        other = memberRepository.save(new Member("readOnly2", 10));
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        memberRepository.deleteAllById(List.of(member.getId(), other.getId()));
+    }
+
+    @Test
+    public void 쿼리_메서드는_flush_하지_않는다() {
+        //given OSIV 처럼 트랜잭션 밖에서 같은 EntityManager 를 쓰도록 바인딩하고 엔티티를 수정해 둔다
+        //쿼리 메서드 안에서 엔티티를 로딩할 때의 트랜잭션과 flush 모드를 기록한다
+        List<String> observed = new ArrayList<>();
+        emf.unwrap(SessionFactoryImplementor.class).getServiceRegistry().getService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_LOAD, (PostLoadEventListener) event -> {
+                    if (event.getEntity() == null || !other.getId().equals(event.getId())) {
+                        return;
+                    }
+                    observed.add(TransactionSynchronizationManager.isCurrentTransactionReadOnly() + ":" + event.getSession().getHibernateFlushMode());
+                });
+        EntityManager em = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(em));
+        try {
+            em.find(Member.class, member.getId()).setAge(99);
+
+            //when
+            memberRepository.findListByUsername("readOnly2");
+
+            //then 읽기 전용 트랜잭션이 flush 모드를 MANUAL 로 바꿔 두었으므로 쿼리 전에도, 커밋할 때도 수정 내용을 flush 하지 않는다
+            //트랜잭션이 끝나면 원래 flush 모드로 돌아온다
+            assertThat(observed).containsExactly("true:" + FlushMode.MANUAL);
+            assertThat(em.unwrap(Session.class).getHibernateFlushMode()).isEqualTo(FlushMode.AUTO);
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            em.close();
+        }
+        assertThat(memberRepository.findById(member.getId()).get().getAge()).isEqualTo(10);
+    }
+
+    @Test
+    public void 쓰기_트랜잭션_안에서는_수정할_수_있다() {
+        transactionTemplate.executeWithoutResult(status ->
+                memberRepository.findListByUsername("readOnly1").get(0).setAge(20));
+
+        assertThat(memberRepository.findById(member.getId()).get().getAge()).isEqualTo(20);
+    }
+
+    @Test
+    public void 쓰기_메서드는_옵트인한다() {
+        int updated = memberRepository.bulkAgePlus(10_000);
+
+        assertThat(updated).isZero();
+    }
+}
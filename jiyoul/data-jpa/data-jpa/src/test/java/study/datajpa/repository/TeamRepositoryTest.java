@@ -0,0 +1,82 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.TeamSummaryDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class TeamRepositoryTest {
+
+    @Autowired TeamRepository teamRepository;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    Team teamA;
+    Team teamB;
+
+    @AfterEach
+    public void cleanUp() {
+        List.of("summary1", "summary3").forEach(username -> memberRepository.deleteAll(memberRepository.findListByUsername(username)));
+        teamRepository.deleteAllById(List.of(teamA.getId(), teamB.getId()));
+    }
+
+    @Test
+    public void 팀별_회원수() {
+        //given
+        teamA = teamRepository.save(new Team("summaryTeamA"));
+        teamB = teamRepository.save(new Team("summaryTeamB"));
+        Member member1 = memberRepository.save(new Member("summary1", 10, teamA));
+        Member member2 = memberRepository.save(new Member("summary2", 10, teamA));
+        memberRepository.save(new Member("summary3", 10, teamB));
+
+        //then
+        assertCounts(2, 1);
+
+        //when 팀 이동
+        transactionTemplate.executeWithoutResult(status ->
+                memberRepository.findById(member1.getId()).get().changeTeam(teamRepository.getReferenceById(teamB.getId())));
+        assertCounts(1, 2);
+
+        //when 삭제
+        memberRepository.deleteById(member2.getId());
+        assertCounts(0, 2);
+    }
+
+    @Test
+    public void 팀과_회원을_한_트랜잭션에서_저장해도_회원수는_한_번만_센다() {
+        //given 팀 insert 는 flush 까지 미뤄지고, 회원은 팀을 저장하기 전에 붙인다
+        transactionTemplate.executeWithoutResult(status -> {
+            Team newTeamA = new Team("summaryTeamA");
+            Member member1 = new Member("summary1", 10, newTeamA);
+            Member member2 = new Member("summary1", 20, newTeamA);
+            teamA = teamRepository.save(newTeamA);
+            teamB = teamRepository.save(new Team("summaryTeamB"));
+            memberRepository.saveAll(List.of(member1, member2, new Member("summary3", 10, teamB)));
+        });
+
+        //then
+        assertCounts(2, 1);
+    }
+
+    private void assertCounts(long countA, long countB) {
+        Map<Long, Long> grouped = counts(teamRepository.findTeamSummaries());
+        Map<Long, Long> maintained = counts(teamRepository.findTeamSummariesByMemberCount());
+        assertThat(grouped).containsEntry(teamA.getId(), countA).containsEntry(teamB.getId(), countB);
+        assertThat(maintained).containsEntry(teamA.getId(), countA).containsEntry(teamB.getId(), countB);
+    }
+
+    private Map<Long, Long> counts(List<TeamSummaryDto> summaries) {
+        return summaries.stream().collect(Collectors.toMap(TeamSummaryDto::getId, TeamSummaryDto::getMemberCount));
+    }
+}
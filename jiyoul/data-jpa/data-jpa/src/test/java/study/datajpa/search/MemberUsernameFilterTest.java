@@ -0,0 +1,114 @@
+package study.datajpa.search;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.batch.StatelessBatchProcessor;
+import study.datajpa.cache.CacheInvalidations;
+import study.datajpa.entity.Member;
+import study.datajpa.outbox.OutboxRecorder;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MemberUsernameFilterTest {
+
+    @Autowired MemberUsernameFilter filter;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MeterRegistry meterRegistry;
+    @Autowired OutboxRecorder outboxRecorder;
+    @Autowired StatelessBatchProcessor batchProcessor;
+    @Autowired CacheInvalidations cacheInvalidations;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired EntityManager em;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from member_view where username like 'bloom%'");
+        jdbcTemplate.update("delete from member where username like 'bloom%'");
+        cacheInvalidations.flush();
+    }
+
+    @Test
+    public void 없는_username_은_조회하지_않는다() {
+        double skippedBefore = skipped();
+
+        assertThat(memberRepository.findOptionalByUsername("bloomNobody")).isEmpty();
+        assertThat(memberRepository.findMemberByUsername("bloomNobody")).isNull();
+
+        assertThat(skipped() - skippedBefore).isEqualTo(2);
+    }
+
+    @Test
+    public void 저장한_회원은_바로_찾는다() {
+        memberRepository.save(new Member("bloomSaved", 10));
+
+        assertThat(memberRepository.findOptionalByUsername("bloomSaved")).isPresent();
+    }
+
+    @Test
+    public void flush_전인_회원도_찾는다() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("bloomUnflushed", 10));
+            assertThat(memberRepository.findMemberByUsername("bloomUnflushed")).isNotNull();
+        });
+    }
+
+    @Test
+    public void flush_전에_바꾼_이름도_찾는다() {
+        //given
+        Long id = memberRepository.save(new Member("bloomBefore", 10)).getId();
+
+        //when, then
+        transactionTemplate.executeWithoutResult(status -> {
+            em.find(Member.class, id).setUsername("bloomRenamed");
+            assertThat(memberRepository.findMemberByUsername("bloomRenamed")).isNotNull();
+        });
+    }
+
+    @Test
+    public void 범위_변경은_다시_훑을_때까지_필터를_쓰지_않는다() {
+        //given 엔티티 이벤트 없이 JDBC 로 넣고 범위 이벤트를 남긴다
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("insert into member (member_id, username, age) values (next value for member_seq, 'bloomJdbc', 10)");
+            outboxRecorder.recordRange(Member.class, Map.of("test", true));
+        });
+
+        //then 필터에는 아직 없지만 DB 에서 찾는다
+        assertThat(memberRepository.findOptionalByUsername("bloomJdbc")).isPresent();
+
+        //when 범위 변경의 무효화 묶음을 받으면 다시 훑는다
+        cacheInvalidations.flush();
+
+        //then
+        assertThat(filter.trusted()).isTrue();
+        assertThat(memberRepository.findOptionalByUsername("bloomJdbc")).isPresent();
+    }
+
+    @Test
+    public void StatelessSession_으로_넣은_회원도_바로_찾는다() {
+        //given
+        Member seed = memberRepository.save(new Member("bloomSeed", 10));
+
+        //when 엔티티 이벤트 없이 넣고, 무효화 묶음이 오기 전에 찾는다
+        batchProcessor.process("select m from Member m where m.id = :id", Map.of("id", seed.getId()), Member.class, 10,
+                (member, writer) -> writer.insert(new Member("bloomStateless", 10)));
+
+        //then
+        assertThat(filter.lookup("bloomStateless")).isNotEqualTo(MemberUsernameFilter.Verdict.ABSENT);
+        assertThat(memberRepository.findOptionalByUsername("bloomStateless")).isPresent();
+    }
+
+    private double skipped() {
+        return meterRegistry.counter("member.username.filter", "result", "skipped").count();
+    }
+}
@@ -0,0 +1,65 @@
+package study.datajpa.search;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 1,000만 건 색인에서 접두어 검색(top 10) 지연 시간과 색인 힙 사용량.
+ * ./gradlew benchmark 로 실행한다. 힙이 3GB 이상 필요하다.
+ */
+@Tag("benchmark")
+class MemberUsernameIndexBenchmarkTest {
+
+    static final int MEMBERS = 10_000_000;
+    static final int SEARCHES = 100_000;
+
+    @Test
+    public void searchLatency() {
+        MemberUsernameIndex index = new MemberUsernameIndex(null);
+        Random random = new Random(42);
+
+        System.gc();
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        for (long id = 1; id <= MEMBERS; id++) {
+            index.put(id, randomUsername(random));
+        }
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+        System.gc();
+        long heapMb = (usedHeap() - heapBefore) >> 20;
+
+        long[] nanos = new long[SEARCHES];
+        int hits = 0;
+        for (int i = 0; i < SEARCHES; i++) {
+            String prefix = randomUsername(random).substring(0, 1 + random.nextInt(4));
+            long searchStart = System.nanoTime();
+            hits += index.search(prefix, 10).size();
+            nanos[i] = System.nanoTime() - searchStart;
+        }
+        Arrays.sort(nanos);
+
+        assertThat(index.size()).isEqualTo(MEMBERS);
+        assertThat(hits).isPositive();
+        System.out.printf("entries %,d  load %,d ms  heap %,d MB  search p50 %,d us  p99 %,d us  p99.9 %,d us  max %,d us%n",
+                index.size(), loadMillis, heapMb, nanos[SEARCHES / 2] / 1_000, nanos[SEARCHES * 99 / 100] / 1_000,
+                nanos[SEARCHES * 999 / 1_000] / 1_000, nanos[SEARCHES - 1] / 1_000);
+    }
+
+    private String randomUsername(Random random) {
+        char[] chars = new char[6 + random.nextInt(6)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    private long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
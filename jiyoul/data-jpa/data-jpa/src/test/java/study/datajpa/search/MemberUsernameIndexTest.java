@@ -0,0 +1,86 @@
+package study.datajpa.search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.cache.CacheInvalidations;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MemberUsernameIndexTest {
+
+    @Autowired MemberUsernameIndex index;
+    @Autowired MemberRepository memberRepository;
+    @Autowired CacheInvalidations cacheInvalidations;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from member_view where username like 'Search%'");
+        jdbcTemplate.update("delete from member where username like 'Search%'");
+        index.rebuild();
+    }
+
+    @Test
+    public void 접두어로_찾고_limit_만큼_자른다() {
+        //given
+        Member kim = memberRepository.save(new Member("SearchKim", 10));
+        Member kimB = memberRepository.save(new Member("searchKimB", 10));
+        Member lee = memberRepository.save(new Member("SearchLee", 10));
+        cacheInvalidations.flush();
+
+        //then 대소문자 무시, username 순
+        assertThat(index.search("searchk", 10)).containsExactly(kim.getId(), kimB.getId());
+        assertThat(index.search("SEARCH", 2)).containsExactly(kim.getId(), kimB.getId());
+        assertThat(index.search("searchL", 10)).containsExactly(lee.getId());
+        assertThat(index.search("searchX", 10)).isEmpty();
+    }
+
+    @Test
+    public void 변경과_삭제를_무효화_묶음으로_반영한다() {
+        //given
+        Member member = memberRepository.save(new Member("SearchOld", 10));
+        cacheInvalidations.flush();
+
+        //when
+        transactionTemplate.executeWithoutResult(status ->
+                memberRepository.findById(member.getId()).get().setUsername("SearchNew"));
+        cacheInvalidations.flush();
+
+        //then
+        assertThat(index.search("searchold", 10)).isEmpty();
+        assertThat(index.search("searchnew", 10)).containsExactly(member.getId());
+
+        //when
+        memberRepository.deleteById(member.getId());
+        cacheInvalidations.flush();
+
+        //then
+        assertThat(index.search("searchnew", 10)).isEmpty();
+    }
+
+    @Test
+    public void 벌크_연산_후에는_다시_적재한다() {
+        //given
+        Member member = memberRepository.save(new Member("SearchBulk", 10));
+        cacheInvalidations.flush();
+
+        //when JDBC 로 바꾸고 벌크 연산(범위 이벤트)을 발생시킨다
+        jdbcTemplate.update("update member set username = 'SearchBulkRenamed' where member_id = ?", member.getId());
+        memberRepository.bulkAgePlus(10_000);
+        cacheInvalidations.flush();
+
+        //then
+        List<Long> found = index.search("searchbulkrenamed", 10);
+        assertThat(found).containsExactly(member.getId());
+    }
+}
@@ -0,0 +1,136 @@
+package study.datajpa.writebehind;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.outbox.OutboxRecorder;
+import study.datajpa.readmodel.MemberViewProjector;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class MemberAgeWriteBehindTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired OutboxRecorder outboxRecorder;
+    @Autowired ObjectProvider<MemberViewProjector> memberViewProjector;
+
+    List<Member> saved = new ArrayList<>();
+    MemberAgeWriteBehind writeBehind;
+
+    @BeforeEach
+    public void setUp() {
+        //주기 flush 가 끼어들지 않도록 간격과 임계치를 크게 잡고 직접 flush 한다
+        writeBehind = new MemberAgeWriteBehind(jdbcTemplate, transactionTemplate, outboxRecorder, memberViewProjector, 60_000, 1_000_000);
+    }
+
+    @AfterEach
+    public void cleanUp() throws Exception {
+        writeBehind.destroy();
+        // flush 가 version 을 올렸으므로 저장해 둔 엔티티 대신 id 로 지운다
+        saved.forEach(member -> {
+            jdbcTemplate.update("delete from member_view where member_id = ?", member.getId());
+            jdbcTemplate.update("delete from member where member_id = ?", member.getId());
+        });
+    }
+
+    @Test
+    public void 증감을_모아서_한번에_반영한다() throws Exception {
+        //given
+        Member hot = memberRepository.save(new Member("writeBehind1", 10));
+        Member cold = memberRepository.save(new Member("writeBehind2", 20));
+        saved.add(hot);
+        saved.add(cold);
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1_000; i++) {
+            executor.execute(() -> writeBehind.increment(hot.getId(), 1));
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        writeBehind.increment(cold.getId(), -5);
+
+        //then
+        assertThat(writeBehind.pending()).isEqualTo(2);
+        assertThat(age(hot)).isEqualTo(10);
+
+        assertThat(writeBehind.flush()).isEqualTo(2);
+        assertThat(writeBehind.pending()).isZero();
+        assertThat(age(hot)).isEqualTo(1_010);
+        assertThat(age(cold)).isEqualTo(15);
+    }
+
+    @Test
+    public void 종료할때_남은_증감을_반영한다() throws Exception {
+        //given
+        Member member = memberRepository.save(new Member("writeBehind3", 10));
+        saved.add(member);
+        writeBehind.increment(member.getId(), 3);
+
+        //when
+        writeBehind.destroy();
+
+        //then
+        assertThat(age(member)).isEqualTo(13);
+    }
+
+    @Test
+    public void flush_전에_읽은_회원을_저장하면_flush_결과를_덮어쓰지_않고_실패한다() {
+        //given
+        Member member = memberRepository.save(new Member("writeBehind4", 10));
+        saved.add(member);
+        Member stale = memberRepository.findById(member.getId()).get();
+        writeBehind.increment(member.getId(), 5);
+        writeBehind.flush();
+
+        //when
+        stale.setUsername("writeBehind5");
+
+        //then
+        assertThatThrownBy(() -> memberRepository.save(stale)).isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(age(member)).isEqualTo(15);
+    }
+
+    @Test
+    public void 읽기_모델이_꺼져_있으면_member_view_는_건드리지_않는다() throws Exception {
+        //given
+        Member member = memberRepository.save(new Member("writeBehind6", 10));
+        saved.add(member);
+        MemberAgeWriteBehind withoutReadModel = new MemberAgeWriteBehind(jdbcTemplate, transactionTemplate, outboxRecorder,
+                new StaticListableBeanFactory().getBeanProvider(MemberViewProjector.class), 60_000, 1_000_000);
+        jdbcTemplate.update("update member_view set age = -1 where member_id = ?", member.getId());
+
+        //when
+        withoutReadModel.increment(member.getId(), 5);
+        withoutReadModel.flush();
+        withoutReadModel.destroy();
+
+        //then
+        assertThat(age(member)).isEqualTo(15);
+        assertThat(jdbcTemplate.queryForObject("select age from member_view where member_id = ?", Integer.class, member.getId()))
+                .isEqualTo(-1);
+    }
+
+    private int age(Member member) {
+        return jdbcTemplate.queryForObject("select age from member where member_id = ?", Integer.class, member.getId());
+    }
+}